@@ -0,0 +1,229 @@
+package com.github.wolray.seq;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses a BGZF file, a gzip file whose members record their own compressed size, by walking
+ * the member headers and inflating groups of members on an {@link Async}, a bounded number of groups
+ * ahead of the reader, whose bytes come back in file order.
+ *
+ * @author wolray
+ */
+public class BgzfInputStream extends InputStream {
+    static final int MEMBERS_PER_TASK = 16;
+    static final int HEADER = 18;
+    static final int MAX_RATIO = 1032;
+
+    final FileChannel channel;
+    final Async async;
+    final long size;
+    final int ahead;
+    final ArrayDeque<Task> pending = new ArrayDeque<>();
+    long next;
+    byte[] cur = {};
+    int pos;
+
+    public BgzfInputStream(Path path, Async async) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.async = async;
+        this.size = channel.size();
+        this.ahead = Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    public static boolean isBgzf(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.size() >= HEADER && memberSize(channel, 0) > 0;
+        }
+    }
+
+    /**
+     * Total size of the member at {@code offset} from its BC extra subfield, or -1 if it has none.
+     */
+    static int memberSize(FileChannel channel, long offset) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, buf, offset);
+        if (buf.get(0) != 0x1f || buf.get(1) != (byte)0x8b || buf.get(2) != 8 || (buf.get(3) & 4) == 0) {
+            return -1;
+        }
+        int xlen = buf.getShort(10) & 0xFFFF;
+        ByteBuffer extra = ByteBuffer.allocate(xlen).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, extra, offset + 12);
+        for (int i = 0; i + 4 <= xlen; ) {
+            int slen = extra.getShort(i + 2) & 0xFFFF;
+            if (extra.get(i) == 'B' && extra.get(i + 1) == 'C' && slen == 2) {
+                return (extra.getShort(i + 4) & 0xFFFF) + 1;
+            }
+            i += 4 + slen;
+        }
+        return -1;
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buf, long offset) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, offset + buf.position()) < 0) {
+                throw new EOFException("truncated gzip member");
+            }
+        }
+    }
+
+    /**
+     * Inflates the members lying back to back in {@code data}, with the sizes found by
+     * {@link #memberSize}, into one array sized from their trailers. A trailer claiming more than
+     * deflate can produce from its member is rejected before anything is allocated.
+     */
+    static byte[] inflate(byte[] data, int[] sizes) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        long total = 0;
+        for (int i = 0, p = 0; i < sizes.length; p += sizes[i++]) {
+            int n = sizes[i];
+            long len = buf.getInt(p + n - 4) & 0xFFFFFFFFL;
+            if (n < HEADER + 8 || len > (long)n * MAX_RATIO) {
+                throw new IOException("corrupt gzip member at " + p);
+            }
+            total += len;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IOException("members too large");
+        }
+        byte[] res = new byte[(int)total];
+        Inflater inflater = new Inflater(true);
+        CRC32 crc = new CRC32();
+        try {
+            int out = 0;
+            for (int i = 0, p = 0; i < sizes.length; p += sizes[i++]) {
+                int n = sizes[i];
+                int header = 12 + (buf.getShort(p + 10) & 0xFFFF);
+                int len = buf.getInt(p + n - 4);
+                inflater.reset();
+                inflater.setInput(data, p + header, n - header - 8);
+                int got = 0;
+                while (got < len) {
+                    int k = inflater.inflate(res, out + got, len - got);
+                    if (k == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    got += k;
+                }
+                crc.reset();
+                crc.update(res, out, got);
+                if (got != len || (int)crc.getValue() != buf.getInt(p + n - 8)) {
+                    throw new IOException("corrupt gzip member at " + p);
+                }
+                out += len;
+            }
+            return res;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public int available() {
+        return cur.length - pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (pos == cur.length) {
+            if (!refill()) {
+                return -1;
+            }
+        }
+        return cur[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (pos == cur.length) {
+            if (!refill()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, cur.length - pos);
+        System.arraycopy(cur, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    boolean refill() throws IOException {
+        submitAhead();
+        Task task = pending.poll();
+        if (task == null) {
+            return false;
+        }
+        async.join(task.future);
+        if (task.error != null) {
+            throw task.error instanceof IOException ? (IOException)task.error : new IOException(task.error);
+        }
+        cur = task.result;
+        pos = 0;
+        return true;
+    }
+
+    void submitAhead() throws IOException {
+        while (pending.size() < ahead && next < size) {
+            long from = next;
+            int[] sizes = new int[MEMBERS_PER_TASK];
+            int count = 0;
+            while (count < MEMBERS_PER_TASK && next < size) {
+                int n = memberSize(channel, next);
+                if (n < 0) {
+                    throw new IOException("not a BGZF member at " + next);
+                }
+                sizes[count++] = n;
+                next += n;
+            }
+            Task task = new Task(from, (int)(next - from), Arrays.copyOf(sizes, count));
+            task.future = async.submit(task);
+            pending.add(task);
+        }
+    }
+
+    class Task implements Runnable {
+        final long offset;
+        final int length;
+        final int[] sizes;
+        Object future;
+        byte[] result;
+        Throwable error;
+
+        Task(long offset, int length, int[] sizes) {
+            this.offset = offset;
+            this.length = length;
+            this.sizes = sizes;
+        }
+
+        @Override
+        public void run() {
+            try {
+                ByteBuffer buf = ByteBuffer.allocate(length);
+                readFully(channel, buf, offset);
+                result = inflate(buf.array(), sizes);
+            } catch (Throwable e) {
+                error = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.wolray.seq;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output counterpart of {@link ByteSource}: bytes and encoded text gather in one reusable buffer
+ * which goes to the channel in large writes, with ASCII text copied without going through the encoder.
+ *
+ * @author wolray
+ */
+public class ByteSink implements Closeable {
+    static final int BUFFER = 1 << 16;
+
+    final WritableByteChannel channel;
+    final ByteBuffer buffer;
+    final CharsetEncoder encoder;
+    final boolean ascii;
+    final Sync sync;
+    char high;
+    boolean closed;
+
+    ByteSink(WritableByteChannel channel, Charset charset, Sync sync, boolean direct) {
+        this.channel = channel;
+        this.buffer = direct ? ByteBuffer.allocateDirect(BUFFER) : ByteBuffer.allocate(BUFFER);
+        this.encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.ascii = LineReader.isAsciiCompatible(charset);
+        this.sync = sync;
+    }
+
+    public static ByteSink of(OutputStream os, Charset charset) {
+        return new ByteSink(Channels.newChannel(os), charset, Sync.NONE, false);
+    }
+
+    public static ByteSink of(Path path) {
+        return of(path, Charset.defaultCharset(), Sync.NONE);
+    }
+
+    public static ByteSink of(Path path, Charset charset, Sync sync, OpenOption... options) {
+        OpenOption[] opts = options.length > 0 ? options : new OpenOption[]{
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE};
+        return IOChain.apply(path, p -> new ByteSink(FileChannel.open(p, opts), charset, sync, true));
+    }
+
+    public static ByteSink ofGzip(Path path, Charset charset) {
+        return IOChain.apply(path, p -> of(new GZIPOutputStream(Files.newOutputStream(p), BUFFER), charset));
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            try {
+                CharBuffer in = high != 0 ? CharBuffer.wrap(new char[]{high}) : CharBuffer.allocate(0);
+                high = 0;
+                while (encoder.encode(in, buffer, true).isOverflow()) {
+                    drain();
+                }
+                while (encoder.flush(buffer).isOverflow()) {
+                    drain();
+                }
+                drain();
+                if (sync != Sync.NONE) {
+                    force();
+                }
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public ByteSink flush() {
+        checkOpen();
+        try {
+            drain();
+            if (sync == Sync.EVERY_FLUSH) {
+                force();
+            }
+            return this;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public ByteSink write(byte[] bytes) {
+        return write(bytes, 0, bytes.length);
+    }
+
+    public ByteSink write(byte[] bytes, int offset, int length) {
+        return write(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    public ByteSink write(ByteBuffer src) {
+        checkOpen();
+        try {
+            if (src.remaining() >= buffer.capacity()) {
+                drain();
+                while (src.hasRemaining()) {
+                    channel.write(src);
+                }
+                return this;
+            }
+            while (src.hasRemaining()) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int n = Math.min(src.remaining(), buffer.remaining());
+                ByteBuffer part = src.duplicate();
+                part.limit(part.position() + n);
+                buffer.put(part);
+                src.position(src.position() + n);
+            }
+            return this;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public ByteSink write(ByteSlice slice) {
+        ByteBuffer src = slice.buffer.duplicate();
+        src.limit(slice.offset + slice.length).position(slice.offset);
+        return write(src);
+    }
+
+    /**
+     * A high surrogate ending {@code s} is held back until the next write, which may start with its low
+     * surrogate.
+     */
+    public ByteSink write(CharSequence s) {
+        checkOpen();
+        if (high != 0 && s.length() > 0) {
+            s = new StringBuilder(s.length() + 1).append(high).append(s);
+            high = 0;
+        }
+        try {
+            int i = 0, n = s.length();
+            if (ascii) {
+                for (char c; i < n && (c = s.charAt(i)) < 0x80; i++) {
+                    if (!buffer.hasRemaining()) {
+                        drain();
+                    }
+                    buffer.put((byte)c);
+                }
+            }
+            if (i < n) {
+                CharBuffer in = CharBuffer.wrap(s, i, n);
+                while (true) {
+                    CoderResult res = encoder.encode(in, buffer, false);
+                    if (!res.isOverflow()) {
+                        break;
+                    }
+                    drain();
+                }
+                if (in.hasRemaining()) {
+                    high = in.get();
+                }
+            }
+            return this;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public ByteSink writeLine(CharSequence s) {
+        return write(s).write("\n");
+    }
+
+    void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("sink closed");
+        }
+    }
+
+    void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    void force() throws IOException {
+        if (channel instanceof FileChannel) {
+            ((FileChannel)channel).force(false);
+        }
+    }
+
+    public enum Sync {
+        NONE, ON_CLOSE, EVERY_FLUSH
+    }
+}
@@ -0,0 +1,321 @@
+package com.github.wolray.seq;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable view of a byte range inside a {@link ByteBuffer}, mapped or heap. As a {@link CharSequence}
+ * every byte is one char, which is exact for ASCII content, while {@link #toString(Charset)} decodes.
+ * Slices handed out by readers are flyweights, call {@link #copy()} to retain one.
+ *
+ * @author wolray
+ */
+public class ByteSlice implements CharSequence, Comparable<ByteSlice> {
+    static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+    static final long ONES = 0x0101010101010101L;
+    static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+    ByteBuffer buffer;
+    int offset;
+    int length;
+    private byte[] scratch;
+    private ByteBuffer own;
+
+    public ByteSlice() {}
+
+    public ByteSlice(ByteBuffer buffer, int offset, int length) {
+        set(buffer, offset, length);
+    }
+
+    public static ByteSlice of(byte[] bytes) {
+        return of(bytes, 0, bytes.length);
+    }
+
+    public static ByteSlice of(byte[] bytes, int offset, int length) {
+        return new ByteSlice(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), offset, length);
+    }
+
+    public static ByteSlice of(String s) {
+        return of(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Index of the first {@code b} in {@code [from, to)}, scanning a word at a time.
+     */
+    public static int indexOf(ByteBuffer buf, int from, int to, byte b) {
+        boolean le = buf.order() == ByteOrder.LITTLE_ENDIAN;
+        long pattern = (b & 0xFFL) * ONES;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long m = zeros(buf.getLong(i) ^ pattern);
+            if (m != 0) {
+                return i + firstByte(m, le);
+            }
+        }
+        for (; i < to; i++) {
+            if (buf.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the first {@code '\n'} or {@code '\r'} in {@code [from, to)}, scanning a word at a time.
+     */
+    public static int indexOfEol(ByteBuffer buf, int from, int to) {
+        boolean le = buf.order() == ByteOrder.LITTLE_ENDIAN;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long w = buf.getLong(i);
+            long m = zeros(w ^ '\n' * ONES) | zeros(w ^ '\r' * ONES);
+            if (m != 0) {
+                return i + firstByte(m, le);
+            }
+        }
+        for (; i < to; i++) {
+            byte b = buf.get(i);
+            if (b == '\n' || b == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the first of the three bytes in {@code [from, to)}, scanning a word at a time.
+     */
+    public static int indexOfAny(ByteBuffer buf, int from, int to, byte a, byte b, byte c) {
+        boolean le = buf.order() == ByteOrder.LITTLE_ENDIAN;
+        long pa = (a & 0xFFL) * ONES, pb = (b & 0xFFL) * ONES, pc = (c & 0xFFL) * ONES;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long w = buf.getLong(i);
+            long m = zeros(w ^ pa) | zeros(w ^ pb) | zeros(w ^ pc);
+            if (m != 0) {
+                return i + firstByte(m, le);
+            }
+        }
+        for (; i < to; i++) {
+            byte x = buf.get(i);
+            if (x == a || x == b || x == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the high bit of exactly those bytes of {@code w} that are zero.
+     */
+    static long zeros(long w) {
+        return ~((w & LOWS) + LOWS | w | LOWS);
+    }
+
+    static int firstByte(long mask, boolean littleEndian) {
+        return (littleEndian ? Long.numberOfTrailingZeros(mask) : Long.numberOfLeadingZeros(mask)) >>> 3;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char)(byteAt(index) & 0xFF);
+    }
+
+    @Override
+    public int compareTo(ByteSlice o) {
+        int n = Math.min(length, o.length);
+        for (int i = 0; i < n; i++) {
+            int c = (byteAt(i) & 0xFF) - (o.byteAt(i) & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length - o.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ByteSlice)) {
+            return false;
+        }
+        ByteSlice that = (ByteSlice)o;
+        if (length != that.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (byteAt(i) != that.byteAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + byteAt(i);
+        }
+        return h;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public ByteSlice subSequence(int start, int end) {
+        return new ByteSlice(buffer, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return toString(StandardCharsets.UTF_8);
+    }
+
+    public ByteSlice set(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public byte byteAt(int i) {
+        return buffer.get(offset + i);
+    }
+
+    public int indexOf(byte b, int from) {
+        int i = indexOf(buffer, offset + from, offset + length, b);
+        return i >= 0 ? i - offset : -1;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Parses a decimal number directly from the bytes, exactly when it has at most 15 significant
+     * digits and no exponent, otherwise through {@link Double#parseDouble(String)}.
+     */
+    public double toDouble() {
+        int i = 0;
+        boolean neg = false;
+        if (length > 0 && (byteAt(0) == '-' || byteAt(0) == '+')) {
+            neg = byteAt(0) == '-';
+            i = 1;
+        }
+        long m = 0;
+        int digits = 0, scale = -1;
+        for (; i < length; i++) {
+            int d = byteAt(i) - '0';
+            if (d >= 0 && d <= 9) {
+                if (++digits > 15) {
+                    return slowDouble();
+                }
+                m = m * 10 + d;
+            } else if (d == '.' - '0' && scale < 0) {
+                scale = digits;
+            } else {
+                return slowDouble();
+            }
+        }
+        if (digits == 0) {
+            return slowDouble();
+        }
+        double v = scale < 0 ? m : m / POW10[digits - scale];
+        return neg ? -v : v;
+    }
+
+    public int toInt() {
+        long v = toLong();
+        if ((int)v != v) {
+            throw new NumberFormatException("int overflow: " + this);
+        }
+        return (int)v;
+    }
+
+    public long toLong() {
+        int i = 0;
+        boolean neg = false;
+        if (length > 0 && (byteAt(0) == '-' || byteAt(0) == '+')) {
+            neg = byteAt(0) == '-';
+            i = 1;
+        }
+        if (i == length || length - i > 18) {
+            return Long.parseLong(toString(StandardCharsets.ISO_8859_1));
+        }
+        long v = 0;
+        for (; i < length; i++) {
+            int d = byteAt(i) - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException("For input string: \"" + this + "\"");
+            }
+            v = v * 10 + d;
+        }
+        return neg ? -v : v;
+    }
+
+    public ByteSlice copy() {
+        return of(toBytes());
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[length];
+        copyTo(bytes);
+        return bytes;
+    }
+
+    public String toString(Charset charset) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + offset, length, charset);
+        }
+        if (scratch == null || scratch.length < length) {
+            scratch = new byte[Math.max(length, 64)];
+        }
+        copyTo(scratch);
+        return new String(scratch, 0, length, charset);
+    }
+
+    /**
+     * Points this slice at its own buffer holding {@code [from, to)} of {@code src} with every doubled quote made single.
+     */
+    ByteSlice unescape(ByteBuffer src, int from, int to, byte quote) {
+        if (own == null || own.capacity() < to - from) {
+            own = ByteBuffer.allocate(Math.max(to - from, 64)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        byte[] bytes = own.array();
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            byte b = src.get(i);
+            bytes[n++] = b;
+            if (b == quote) {
+                i++;
+            }
+        }
+        return set(own, 0, n);
+    }
+
+    private double slowDouble() {
+        return Double.parseDouble(toString(StandardCharsets.ISO_8859_1));
+    }
+
+    private void copyTo(byte[] bytes) {
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(offset);
+        dup.get(bytes, 0, length);
+    }
+}
@@ -3,15 +3,69 @@ package com.github.wolray.seq;
 import java.io.*;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.file.*;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * @author wolray
  */
 public interface ByteSource extends IOChain.Closable<InputStream> {
+    static ByteSource concat(ByteSource... sources) {
+        return new ByteSource() {
+            @Override
+            public InputStream call() {
+                Iterator<ByteSource> iterator = Arrays.asList(sources).iterator();
+                return new SequenceInputStream(new Enumeration<InputStream>() {
+                    @Override
+                    public boolean hasMoreElements() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public InputStream nextElement() {
+                        return iterator.next().get();
+                    }
+                });
+            }
+
+            @Override
+            public long transferTo(WritableByteChannel target) {
+                long total = 0;
+                for (ByteSource source : sources) {
+                    total += source.transferTo(target);
+                }
+                return total;
+            }
+        };
+    }
+
+    /**
+     * Lines of a growing file as they are appended, across truncation and rotation.
+     */
+    static FollowSource follow(Path path) {
+        return FollowSource.of(path);
+    }
+
+    /**
+     * Decompressed gzip file, inflated in parallel on the async when it is BGZF and sequentially otherwise.
+     */
+    static ByteSource gzip(Path path, Async async) {
+        return () -> BgzfInputStream.isBgzf(path)
+            ? new BgzfInputStream(path, async)
+            : new GZIPInputStream(Files.newInputStream(path), 1 << 16);
+    }
+
     static ByteSource of(File file) {
         return of(file.toPath());
     }
@@ -34,20 +88,110 @@ public interface ByteSource extends IOChain.Closable<InputStream> {
 
             @Override
             public Path write(Path target) {
-                if (!path.equals(target)) {
-                    try {
-                        Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                }
-                return target;
+                return path.equals(target) ? target : ByteSource.super.write(target);
             }
 
             @Override
             public IOChain<BufferedReader> toReader() {
                 return (Closable<BufferedReader>)() -> Files.newBufferedReader(path, charset());
             }
+
+            @Override
+            public Seq<ByteSlice> toLineSlices() {
+                return p -> IOChain.apply(p, ls -> LineReader.until(path, ls));
+            }
+
+            @Override
+            public Seq<String> toLines() {
+                Charset charset = charset();
+                if (LineReader.isAsciiCompatible(charset)) {
+                    return LineReader.decode(toLineSlices(), charset);
+                }
+                return ByteSource.super.toLines();
+            }
+
+            @Override
+            public Seq<String> lines(long from, long to) {
+                LineIndex index = LineIndex.load(path);
+                if (index == null) {
+                    return ByteSource.super.lines(from, to);
+                }
+                return index.slice(from, to).withCharset(charset()).toLines();
+            }
+
+            @Override
+            public ChunkedLines toLinesParallel(Async async, Charset charset, long chunkBytes) {
+                return ChunkedLines.of(path, charset, async, chunkBytes);
+            }
+
+            @Override
+            public ByteSource slice(long offset, long length) {
+                return of(path, offset, length).withCharset(charset());
+            }
+
+            @Override
+            public long transferTo(WritableByteChannel target) {
+                return of(path, 0, Long.MAX_VALUE).transferTo(target);
+            }
+        };
+    }
+
+    /**
+     * Region of a file, read through positional channel reads and transferred without heap copies.
+     */
+    static ByteSource of(Path path, long offset, long length) {
+        checkRange(offset, length);
+        return new ByteSource() {
+            @Override
+            public InputStream call() throws IOException {
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                return new LimitedInputStream(Channels.newInputStream(channel.position(offset)), length);
+            }
+
+            @Override
+            public byte[] toBytes() {
+                return IOChain.apply(path, p -> {
+                    try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+                        long size = Math.max(0, Math.min(length, channel.size() - offset));
+                        if (size > Integer.MAX_VALUE - 8) {
+                            throw new OutOfMemoryError("region too large: " + size);
+                        }
+                        ByteBuffer buf = ByteBuffer.allocate((int)size);
+                        while (buf.hasRemaining() && channel.read(buf, offset + buf.position()) > 0) {}
+                        return buf.position() == buf.capacity() ? buf.array() : Arrays.copyOf(buf.array(), buf.position());
+                    }
+                });
+            }
+
+            @Override
+            public Seq<ByteSlice> toLineSlices() {
+                return p -> IOChain.apply(p, ls -> {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                        long end = Math.min(channel.size(), offset + Math.min(length, Long.MAX_VALUE - offset));
+                        return LineReader.until(channel, offset, end, LineReader.WINDOW, ls);
+                    }
+                });
+            }
+
+            @Override
+            public ByteSource slice(long off, long len) {
+                checkRange(off, len);
+                long start = offset + Math.min(off, Long.MAX_VALUE - offset);
+                return of(path, start, Math.max(0, Math.min(len, length - off))).withCharset(charset());
+            }
+
+            @Override
+            public long transferTo(WritableByteChannel target) {
+                return IOChain.apply(path, p -> {
+                    try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+                        long pos = offset, end = Math.min(channel.size(), offset + Math.min(length, Long.MAX_VALUE - offset)), n;
+                        while (pos < end && (n = channel.transferTo(pos, end - pos, target)) > 0) {
+                            pos += n;
+                        }
+                        return Math.max(0, pos - offset);
+                    }
+                });
+            }
         };
     }
 
@@ -75,6 +219,44 @@ public interface ByteSource extends IOChain.Closable<InputStream> {
             public ByteSource cache() {
                 return this;
             }
+
+            @Override
+            public Seq<ByteSlice> toLineSlices() {
+                return p -> LineReader.until(bytes, p);
+            }
+
+            @Override
+            public ChunkedLines toLinesParallel(Async async, Charset charset, long chunkBytes) {
+                return ChunkedLines.of(bytes, charset, async, chunkBytes);
+            }
+
+            @Override
+            public ByteSource slice(long offset, long length) {
+                checkRange(offset, length);
+                int from = (int)Math.min(offset, bytes.length);
+                int len = (int)Math.min(length, bytes.length - from);
+                return new ByteSource() {
+                    @Override
+                    public InputStream call() {
+                        return new ByteArrayInputStream(bytes, from, len);
+                    }
+
+                    @Override
+                    public byte[] toBytes() {
+                        return Arrays.copyOfRange(bytes, from, from + len);
+                    }
+
+                    @Override
+                    public long transferTo(WritableByteChannel target) {
+                        return writeFully(ByteBuffer.wrap(bytes, from, len), target);
+                    }
+                }.withCharset(charset());
+            }
+
+            @Override
+            public long transferTo(WritableByteChannel target) {
+                return writeFully(ByteBuffer.wrap(bytes), target);
+            }
         };
     }
 
@@ -111,12 +293,40 @@ public interface ByteSource extends IOChain.Closable<InputStream> {
         return IOChain.apply(url, u -> of(new URL(u)));
     }
 
+    /**
+     * File entries of a zip archive by name, all read through one shared channel until the archive is closed.
+     */
+    static ZipArchive zipEntries(Path path) {
+        return IOChain.apply(path, ZipArchive::new);
+    }
+
     static InputStream toInputStream(Iterator<String> iterator, String sep) {
         return new InputPuller(iterator, sep);
     }
 
+    static void checkRange(long offset, long length) {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("negative offset or length");
+        }
+    }
+
+    static long writeFully(ByteBuffer buf, WritableByteChannel target) {
+        return IOChain.apply(buf, b -> {
+            int n = b.remaining();
+            while (b.hasRemaining()) {
+                target.write(b);
+            }
+            return (long)n;
+        });
+    }
+
+    /**
+     * Reads the source once through {@link ReadBuffer}, so the cached array is the only copy made.
+     */
     default ByteSource cache() {
-        return of(toBytes());
+        byte[][] res = {null};
+        use(is -> res[0] = ReadBuffer.readAll(is, 8192));
+        return of(res[0]);
     }
 
     default ByteSource withCharset(Charset charset) {
@@ -141,6 +351,121 @@ public interface ByteSource extends IOChain.Closable<InputStream> {
             public Charset charset() {
                 return charset;
             }
+
+            @Override
+            public Seq<ByteSlice> toLineSlices() {
+                return origin.toLineSlices();
+            }
+
+            @Override
+            public Seq<String> lines(long from, long to) {
+                return charset.equals(origin.charset()) ? origin.lines(from, to) : ByteSource.super.lines(from, to);
+            }
+
+            @Override
+            public ChunkedLines toLinesParallel(Async async, Charset cs, long chunkBytes) {
+                return origin.toLinesParallel(async, cs, chunkBytes);
+            }
+
+            @Override
+            public ByteSource slice(long offset, long length) {
+                return origin.slice(offset, length).withCharset(charset);
+            }
+
+            @Override
+            public long transferTo(WritableByteChannel target) {
+                return origin.transferTo(target);
+            }
+        };
+    }
+
+    /**
+     * Source whose streams read {@code depth} blocks of {@code blockSize} ahead on the async.
+     */
+    default ByteSource prefetching(Async async, int blockSize, int depth) {
+        if (blockSize <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("non-positive size");
+        }
+        ByteSource origin = this;
+        return new ByteSource() {
+            @Override
+            public InputStream call() throws IOException {
+                return new PrefetchInputStream(origin.call(), async, blockSize, depth);
+            }
+
+            @Override
+            public Charset charset() {
+                return origin.charset();
+            }
+        };
+    }
+
+    /**
+     * Decompressed gzip content, following concatenated members to the end.
+     */
+    default ByteSource gzip() {
+        ByteSource origin = this;
+        return new ByteSource() {
+            @Override
+            public InputStream call() throws IOException {
+                return new GZIPInputStream(origin.call(), 1 << 16);
+            }
+
+            @Override
+            public Charset charset() {
+                return origin.charset();
+            }
+        };
+    }
+
+    /**
+     * Decompressed zlib content, or raw deflate content if {@code nowrap}.
+     */
+    default ByteSource inflate(boolean nowrap) {
+        ByteSource origin = this;
+        return new ByteSource() {
+            @Override
+            public InputStream call() throws IOException {
+                Inflater inflater = new Inflater(nowrap);
+                return new InflaterInputStream(origin.call(), inflater, 1 << 16) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inflater.end();
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public Charset charset() {
+                return origin.charset();
+            }
+        };
+    }
+
+    /**
+     * Bytes {@code [offset, offset + length)} of this source, clipped to its end.
+     */
+    default ByteSource slice(long offset, long length) {
+        checkRange(offset, length);
+        ByteSource origin = this;
+        return () -> {
+            InputStream is = origin.call();
+            long skip = offset;
+            while (skip > 0) {
+                long n = is.skip(skip);
+                if (n <= 0) {
+                    if (is.read() < 0) {
+                        break;
+                    }
+                    n = 1;
+                }
+                skip -= n;
+            }
+            return new LimitedInputStream(is, length);
         };
     }
 
@@ -161,18 +486,117 @@ public interface ByteSource extends IOChain.Closable<InputStream> {
     }
 
     default Path write(Path target) {
-        use(is -> Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING));
+        IOChain.apply(target, t -> {
+            try (FileChannel channel = FileChannel.open(t, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                return transferTo(channel);
+            }
+        });
         return target;
     }
 
+    /**
+     * Writes all bytes to the channel, handing a file target to {@link FileChannel#transferFrom} and
+     * leaving its position after the written bytes.
+     */
+    default long transferTo(WritableByteChannel target) {
+        long[] total = {0};
+        use(is -> {
+            ReadableByteChannel in = Channels.newChannel(is);
+            if (target instanceof FileChannel) {
+                FileChannel fc = (FileChannel)target;
+                long pos = fc.position(), n;
+                while ((n = fc.transferFrom(in, pos + total[0], 1 << 20)) > 0) {
+                    total[0] += n;
+                }
+                fc.position(pos + total[0]);
+            } else {
+                ByteBuffer buf = ByteBuffer.allocate(8192);
+                while (in.read(buf) >= 0) {
+                    buf.flip();
+                    total[0] += writeFully(buf, target);
+                    buf.clear();
+                }
+            }
+        });
+        return total[0];
+    }
+
     default Path writeTemp(String suffix) {
         return IOChain.of(() -> write(Files.createTempFile("", suffix))).get();
     }
 
+    /**
+     * Lines {@code [from, to)}, found by skipping the lines before them.
+     */
+    default Seq<String> lines(long from, long to) {
+        checkRange(from, to - from);
+        Charset charset = charset();
+        if (!LineReader.isAsciiCompatible(charset)) {
+            return p -> toLines().until(new Predicate<String>() {
+                long i = 0;
+
+                @Override
+                public boolean test(String s) {
+                    return i >= to || i++ >= from && p.test(s);
+                }
+            });
+        }
+        return p -> toLineSlices().until(new Predicate<ByteSlice>() {
+            long i = 0;
+
+            @Override
+            public boolean test(ByteSlice s) {
+                return i >= to || i++ >= from && p.test(s.toString(charset));
+            }
+        });
+    }
+
+    /**
+     * Malformed input is replaced as by {@link java.io.InputStreamReader}, except for a plain file source
+     * which reports it as {@link Files#newBufferedReader(Path, Charset)} does.
+     */
     default Seq<String> toLines() {
+        Charset charset = charset();
+        if (LineReader.isAsciiCompatible(charset)) {
+            return toLineSlices().map(s -> s.toString(charset));
+        }
         return toReader().toSeq(BufferedReader::readLine);
     }
 
+    /**
+     * Fields of every line, see {@link ByteSplitter#rows(Seq)}, with quoted fields kept on one line.
+     */
+    default Seq<SeqList<ByteSlice>> toFields(ByteSplitter splitter) {
+        return splitter.rows(toLineSlices());
+    }
+
+    /**
+     * Lines split into line-aligned byte ranges which can be processed on the workers independently.
+     */
+    default ChunkedLines toLinesParallel(Async async, long chunkBytes) {
+        return toLinesParallel(async, charset(), chunkBytes);
+    }
+
+    /**
+     * Only files and byte arrays are split into ranges. Any other source is one chunk streamed from
+     * {@link #call()}, so it is read sequentially but never held in memory as a whole.
+     */
+    default ChunkedLines toLinesParallel(Async async, Charset charset, long chunkBytes) {
+        return ChunkedLines.of(this, charset, async, chunkBytes);
+    }
+
+    /**
+     * Lines as one reusable {@link ByteSlice}, only valid until the next line is emitted.
+     */
+    default Seq<ByteSlice> toLineSlices() {
+        return p -> {
+            boolean[] res = {false};
+            use(is -> res[0] = LineReader.until(is, p));
+            return res[0];
+        };
+    }
+
     default String asString() {
         return new String(toBytes(), charset());
     }
@@ -182,23 +606,59 @@ public interface ByteSource extends IOChain.Closable<InputStream> {
     }
 
     default byte[] toBytes(int bufferSize) {
-        byte[] buff = new byte[bufferSize];
-        List<byte[]> list = new ArrayList<>();
-        int[] total = {0};
-        use(is -> {
-            int len;
-            while ((len = is.read(buff, 0, buff.length)) > 0) {
-                list.add(Arrays.copyOf(buff, len));
-                total[0] += len;
+        byte[][] res = {null};
+        use(is -> res[0] = ReadBuffer.readAll(is, bufferSize));
+        return res[0];
+    }
+
+    class LimitedInputStream extends FilterInputStream {
+        long remaining;
+
+        public LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            remaining = limit;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int)Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
             }
-        });
-        byte[] res = new byte[total[0]];
-        int pos = 0;
-        for (byte[] bytes : list) {
-            System.arraycopy(bytes, 0, res, pos, bytes.length);
-            pos += bytes.length;
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int)Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
         }
-        return res;
     }
 
     class InputPuller extends InputStream {
@@ -0,0 +1,135 @@
+package com.github.wolray.seq;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits ASCII-compatible bytes on a single or multi-byte separator found a word at a time, handing
+ * out fields as reusable {@link ByteSlice} views. With a quote, a field starting with it runs to the
+ * closing quote and a doubled quote stands for one, the only case where field bytes are copied.
+ *
+ * @author wolray
+ */
+public class ByteSplitter {
+    final byte[] sep;
+    final int quote;
+
+    ByteSplitter(byte[] sep, int quote) {
+        if (sep.length == 0) {
+            throw new IllegalArgumentException("empty separator");
+        }
+        this.sep = sep;
+        this.quote = quote;
+    }
+
+    public static ByteSplitter of(char sep) {
+        return new ByteSplitter(new byte[]{ascii(sep)}, -1);
+    }
+
+    public static ByteSplitter of(String sep) {
+        return new ByteSplitter(sep.getBytes(StandardCharsets.UTF_8), -1);
+    }
+
+    static byte ascii(char c) {
+        if (c > 0x7F) {
+            throw new IllegalArgumentException("non-ASCII char: " + c);
+        }
+        return (byte)c;
+    }
+
+    public ByteSplitter withQuote(char quote) {
+        return new ByteSplitter(sep, ascii(quote));
+    }
+
+    public Seq<ByteSlice> split(byte[] bytes) {
+        return split(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), 0, bytes.length);
+    }
+
+    public Seq<ByteSlice> split(ByteSlice s) {
+        return split(s.buffer, s.offset, s.offset + s.length);
+    }
+
+    public Seq<ByteSlice> split(ByteBuffer buf, int from, int to) {
+        return p -> {
+            ByteSlice slice = new ByteSlice();
+            int pos = from;
+            do {
+                pos = field(buf, pos, to, slice);
+                if (p.test(slice)) {
+                    return true;
+                }
+            } while (pos >= 0);
+            return false;
+        };
+    }
+
+    /**
+     * Fields of every line as one reusable list of reusable slices.
+     */
+    public Seq<SeqList<ByteSlice>> rows(Seq<ByteSlice> lines) {
+        return p -> {
+            SeqList<ByteSlice> row = new SeqList<>(), pool = new SeqList<>();
+            return lines.until(line -> {
+                splitInto(line, row, pool);
+                return p.test(row);
+            });
+        };
+    }
+
+    void splitInto(ByteSlice line, SeqList<ByteSlice> row, SeqList<ByteSlice> pool) {
+        row.clear();
+        int pos = line.offset, to = pos + line.length;
+        do {
+            if (row.size() == pool.size()) {
+                pool.add(new ByteSlice());
+            }
+            ByteSlice f = pool.get(row.size());
+            pos = field(line.buffer, pos, to, f);
+            row.add(f);
+        } while (pos >= 0);
+    }
+
+    /**
+     * Sets {@code out} to the field at {@code pos}, returning where the next one starts, or -1 if it was the last.
+     */
+    int field(ByteBuffer buf, int pos, int to, ByteSlice out) {
+        if (quote >= 0 && pos < to && buf.get(pos) == quote) {
+            int start = pos + 1, i = start;
+            boolean escaped = false;
+            while ((i = ByteSlice.indexOf(buf, i, to, (byte)quote)) >= 0 && i + 1 < to && buf.get(i + 1) == quote) {
+                escaped = true;
+                i += 2;
+            }
+            int end = i >= 0 ? i : to;
+            if (escaped) {
+                out.unescape(buf, start, end, (byte)quote);
+            } else {
+                out.set(buf, start, end - start);
+            }
+            int s = i >= 0 ? indexOfSep(buf, end + 1, to) : -1;
+            return s >= 0 ? s + sep.length : -1;
+        }
+        int s = indexOfSep(buf, pos, to);
+        if (s < 0) {
+            out.set(buf, pos, to - pos);
+            return -1;
+        }
+        out.set(buf, pos, s - pos);
+        return s + sep.length;
+    }
+
+    int indexOfSep(ByteBuffer buf, int from, int to) {
+        int n = sep.length;
+        outer:
+        for (int i = ByteSlice.indexOf(buf, from, to, sep[0]); i >= 0 && i + n <= to; i = ByteSlice.indexOf(buf, i + 1, to, sep[0])) {
+            for (int j = 1; j < n; j++) {
+                if (buf.get(i + j) != sep[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
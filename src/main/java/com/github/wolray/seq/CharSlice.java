@@ -0,0 +1,149 @@
+package com.github.wolray.seq;
+
+/**
+ * Reusable view of a range inside any {@link CharSequence}, hashing like the equivalent {@link String}.
+ * Slices handed out by splitters are flyweights, call {@link #toString()} or {@link #copy()} to retain one.
+ *
+ * @author wolray
+ */
+public class CharSlice implements CharSequence, Comparable<CharSequence> {
+    CharSequence source;
+    int offset;
+    int length;
+
+    public CharSlice() {}
+
+    public CharSlice(CharSequence source, int start, int end) {
+        set(source, start, end);
+    }
+
+    public static CharSlice of(CharSequence source) {
+        return new CharSlice(source, 0, source.length());
+    }
+
+    static int indexOf(CharSequence s, char c, int from, int to) {
+        if (s instanceof String) {
+            int i = ((String)s).indexOf(c, from);
+            return i < to ? i : -1;
+        }
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int indexOf(CharSequence s, String literal, int from, int to) {
+        if (s instanceof String) {
+            int i = ((String)s).indexOf(literal, from);
+            return i + literal.length() <= to ? i : -1;
+        }
+        char first = literal.charAt(0);
+        int len = literal.length();
+        outer:
+        for (int i = indexOf(s, first, from, to); i >= 0 && i + len <= to; i = indexOf(s, first, i + 1, to)) {
+            for (int j = 1; j < len; j++) {
+                if (s.charAt(i + j) != literal.charAt(j)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return source.charAt(offset + index);
+    }
+
+    @Override
+    public int compareTo(CharSequence o) {
+        int n = Math.min(length, o.length());
+        for (int i = 0; i < n; i++) {
+            int c = charAt(i) - o.charAt(i);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length - o.length();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof CharSlice && contentEquals((CharSlice)o);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + charAt(i);
+        }
+        return h;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public CharSlice subSequence(int start, int end) {
+        return new CharSlice(source, offset + start, offset + end);
+    }
+
+    @Override
+    public String toString() {
+        if (source instanceof String) {
+            return ((String)source).substring(offset, offset + length);
+        }
+        return new StringBuilder(length).append(source, offset, offset + length).toString();
+    }
+
+    public CharSlice set(CharSequence source, int start, int end) {
+        this.source = source;
+        this.offset = start;
+        this.length = end - start;
+        return this;
+    }
+
+    public boolean contentEquals(CharSequence cs) {
+        if (length != cs.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (charAt(i) != cs.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int indexOf(char c, int from) {
+        int i = indexOf(source, c, offset + from, offset + length);
+        return i >= 0 ? i - offset : -1;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public boolean startsWith(CharSequence prefix) {
+        int n = prefix.length();
+        if (n > length) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public CharSlice copy() {
+        return of(toString());
+    }
+}
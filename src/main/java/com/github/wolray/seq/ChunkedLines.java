@@ -0,0 +1,237 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Lines of one source cut into byte ranges of about {@code chunkBytes}, each ending right after a
+ * {@code '\n'}, so that every range is an independent {@link Seq} which can run on its own worker.
+ *
+ * @author wolray
+ */
+public abstract class ChunkedLines {
+    final Async async;
+    final long chunkBytes;
+    final Charset charset;
+    private long[] bounds;
+
+    ChunkedLines(Async async, Charset charset, long chunkBytes) {
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("non-positive size");
+        }
+        this.async = async;
+        this.charset = charset;
+        this.chunkBytes = chunkBytes;
+    }
+
+    public static ChunkedLines of(byte[] bytes, Charset charset, Async async, long chunkBytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        return new ChunkedLines(async, charset, chunkBytes) {
+            @Override
+            long size() {
+                return bytes.length;
+            }
+
+            @Override
+            long lineEnd(long pos) {
+                int i = ByteSlice.indexOf(buf, (int)pos, bytes.length, (byte)'\n');
+                return i >= 0 ? i + 1 : bytes.length;
+            }
+
+            @Override
+            boolean until(long from, long to, Predicate<ByteSlice> predicate) {
+                return LineReader.until(bytes, (int)from, (int)to, predicate);
+            }
+        };
+    }
+
+    public static ChunkedLines of(Path path, Charset charset, Async async, long chunkBytes) {
+        return new ChunkedLines(async, charset, chunkBytes) {
+            @Override
+            long size() throws IOException {
+                return Files.size(path);
+            }
+
+            @Override
+            long lineEnd(long pos) throws IOException {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    ByteBuffer buf = ByteBuffer.allocate(8192).order(ByteOrder.LITTLE_ENDIAN);
+                    int n;
+                    while ((n = channel.read(buf, pos)) > 0) {
+                        int i = ByteSlice.indexOf(buf, 0, n, (byte)'\n');
+                        if (i >= 0) {
+                            return pos + i + 1;
+                        }
+                        pos += n;
+                        buf.clear();
+                    }
+                    return channel.size();
+                }
+            }
+
+            @Override
+            boolean until(long from, long to, Predicate<ByteSlice> predicate) throws IOException {
+                return LineReader.until(path, from, to, predicate);
+            }
+        };
+    }
+
+    /**
+     * The whole stream of {@code source} as a single chunk, for sources without random access.
+     */
+    static ChunkedLines of(ByteSource source, Charset charset, Async async, long chunkBytes) {
+        return new ChunkedLines(async, charset, chunkBytes) {
+            @Override
+            long size() {
+                return Long.MAX_VALUE;
+            }
+
+            @Override
+            long lineEnd(long pos) {
+                return Long.MAX_VALUE;
+            }
+
+            @Override
+            boolean until(long from, long to, Predicate<ByteSlice> predicate) throws IOException {
+                try (InputStream is = source.call()) {
+                    return LineReader.until(is, predicate);
+                }
+            }
+        };
+    }
+
+    abstract long size() throws IOException;
+
+    /**
+     * Position right after the first {@code '\n'} at or after {@code pos}, or the size if there is none.
+     */
+    abstract long lineEnd(long pos) throws IOException;
+
+    abstract boolean until(long from, long to, Predicate<ByteSlice> predicate) throws IOException;
+
+    public long[] bounds() {
+        if (bounds == null) {
+            if (!LineReader.isAsciiCompatible(charset)) {
+                throw new IllegalStateException("not ASCII compatible: " + charset);
+            }
+            bounds = IOChain.of(() -> {
+                long size = size();
+                if (size == Long.MAX_VALUE) {
+                    return new long[]{0, size};
+                }
+                long[] res = new long[(int)Math.min(size / chunkBytes + 2, Integer.MAX_VALUE - 8)];
+                int n = 1;
+                for (long pos = 0; pos < size; ) {
+                    pos = chunkBytes >= size - pos ? size : lineEnd(pos + chunkBytes - 1);
+                    res[n++] = pos;
+                }
+                return Arrays.copyOf(res, n);
+            }).get();
+        }
+        return bounds;
+    }
+
+    public int chunks() {
+        return bounds().length - 1;
+    }
+
+    public Seq<String> chunk(int i) {
+        return chunkSlices(i).map(s -> s.toString(charset));
+    }
+
+    public Seq<ByteSlice> chunkSlices(int i) {
+        long[] b = bounds();
+        return p -> IOChain.apply(p, ps -> until(b[i], b[i + 1], ps));
+    }
+
+    /**
+     * Applies the function to every chunk on the workers, with results in chunk order.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> SeqList<V> map(Function<Seq<String>, V> function) {
+        int n = chunks();
+        Object[] res = new Object[n];
+        async.joinAll(Seq.range(n).map(i -> () -> res[i] = function.apply(chunk(i))));
+        SeqList<V> list = new SeqList<>(n);
+        for (Object o : res) {
+            list.add((V)o);
+        }
+        return list;
+    }
+
+    public <V> V reduce(Reducer.Mergeable<String, V> reducer) {
+        SeqList<Reducer.MergeableWorker<String, V>> workers = map(seq -> {
+            Reducer.MergeableWorker<String, V> worker = reducer.get();
+            seq.consume(worker::accept);
+            return worker;
+        });
+        if (workers.isEmpty()) {
+            return reducer.get().result();
+        }
+        Reducer.MergeableWorker<String, V> first = workers.get(0);
+        for (int i = 1; i < workers.size(); i++) {
+            first.merge(workers.get(i));
+        }
+        return first.result();
+    }
+
+    public <V> V reduce(Reducer<String, V> reducer, BinaryOperator<V> combiner) {
+        SeqList<V> results = map(seq -> seq.reduce(reducer));
+        if (results.isEmpty()) {
+            return reducer.get().result();
+        }
+        V res = results.get(0);
+        for (int i = 1; i < results.size(); i++) {
+            res = combiner.apply(res, results.get(i));
+        }
+        return res;
+    }
+
+    /**
+     * All lines in order, with a bounded number of chunks read ahead on the workers.
+     */
+    public Seq<String> toSeq() {
+        int ahead = Runtime.getRuntime().availableProcessors() * 2;
+        return p -> {
+            int n = chunks();
+            Object[] tasks = new Object[n];
+            Object[] lists = new Object[n];
+            AtomicBoolean cancelled = new AtomicBoolean();
+            int submitted = 0;
+            try {
+                for (int i = 0; i < n; i++) {
+                    for (; submitted < n && submitted < i + ahead; submitted++) {
+                        int j = submitted;
+                        tasks[j] = async.submit(() -> {
+                            SeqList<String> list = new SeqList<>();
+                            chunk(j).until(s -> !list.add(s) || cancelled.get());
+                            lists[j] = list;
+                        });
+                    }
+                    async.join(tasks[i]);
+                    @SuppressWarnings("unchecked")
+                    SeqList<String> list = (SeqList<String>)lists[i];
+                    tasks[i] = lists[i] = null;
+                    if (list.until(p)) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                cancelled.set(true);
+            }
+        };
+    }
+}
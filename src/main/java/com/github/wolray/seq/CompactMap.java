@@ -0,0 +1,476 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Insertion-ordered hash map in the style of CPython's dict: entries live densely in parallel arrays
+ * together with their cached hashes, and a linear probing table of entry positions locates them.
+ * Removed entries leave a hole that is squeezed out on the next growth. {@link SeqMap} stays a
+ * {@link LinkedHashMap}; a compact map is made from any {@link Seq2} by {@link Seq2#toCompactMap()}.
+ *
+ * @author wolray
+ */
+public class CompactMap<K, V> extends AbstractMap<K, V> implements Serializable {
+    static final Object DELETED = new Object();
+    private static final long serialVersionUID = 1L;
+
+    transient Object[] keys;
+    transient Object[] values;
+    transient int[] hashes;
+    transient int[] index;
+    transient int shift;
+    transient int size;
+    transient int used;
+    transient int modCount;
+
+    public CompactMap() {
+        this(16);
+    }
+
+    public CompactMap(int initialCapacity) {
+        init(Math.max(4, initialCapacity));
+    }
+
+    static int hash(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ h >>> 16;
+    }
+
+    @Override
+    public void clear() {
+        if (used > 0) {
+            Arrays.fill(keys, 0, used, null);
+            Arrays.fill(values, 0, used, null);
+            Arrays.fill(index, 0);
+            size = used = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key, hash(key)) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int h = hash(key);
+        int e = find(key, h);
+        if (e >= 0 && values[e] != null) {
+            return (V)values[e];
+        }
+        int mc = modCount;
+        V v = mappingFunction.apply(key);
+        if (mc != modCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (v != null) {
+            if (e >= 0) {
+                values[e] = v;
+            } else {
+                insert(~e, key, h, v);
+            }
+        }
+        return v;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Itr<Entry<K, V>>() {
+                    @Override
+                    Entry<K, V> get(int e) {
+                        return new EntryView(e);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (o instanceof Entry) {
+                    Entry<?, ?> entry = (Entry<?, ?>)o;
+                    int e = find(entry.getKey(), hash(entry.getKey()));
+                    return e >= 0 && Objects.equals(values[e], entry.getValue());
+                }
+                return false;
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int mc = modCount;
+        for (int e = 0; e < used; e++) {
+            Object k = keys[e];
+            if (k != DELETED) {
+                action.accept((K)k, (V)values[e]);
+            }
+        }
+        if (mc != modCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int e = find(key, hash(key));
+        return e >= 0 ? (V)values[e] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int e = find(key, hash(key));
+        return e >= 0 ? (V)values[e] : defaultValue;
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                return new Itr<K>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    K get(int e) {
+                        return (K)keys[e];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                int e = find(o, hash(o));
+                if (e >= 0) {
+                    removeAt(e);
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        int h = hash(key);
+        int e = find(key, h);
+        if (e >= 0) {
+            V old = (V)values[e];
+            values[e] = value;
+            return old;
+        }
+        insert(~e, key, h, value);
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        int e = find(key, hash(key));
+        return e >= 0 ? removeAt(e) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        int mc = modCount;
+        for (int e = 0; e < used; e++) {
+            Object k = keys[e];
+            if (k != DELETED) {
+                values[e] = function.apply((K)k, (V)values[e]);
+            }
+        }
+        if (mc != modCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Itr<V>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V get(int e) {
+                        return (V)values[e];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * A new map with the same keys in the same order, reusing the cached hashes.
+     */
+    public <T> CompactMap<K, T> mapValues(BiFunction<K, V, T> function) {
+        CompactMap<K, T> res = new CompactMap<>(0);
+        res.copyFrom(this, function);
+        return res;
+    }
+
+    /**
+     * Fills this empty map with the entries of {@code src}, reusing their cached hashes and mapping every value.
+     */
+    @SuppressWarnings("unchecked")
+    <A> void copyFrom(CompactMap<K, A> src, BiFunction<K, A, V> function) {
+        init(Math.max(4, src.size));
+        int mc = src.modCount;
+        for (int e = 0; e < src.used; e++) {
+            Object k = src.keys[e];
+            if (k != DELETED) {
+                keys[used] = k;
+                hashes[used] = src.hashes[e];
+                values[used++] = function.apply((K)k, (A)src.values[e]);
+            }
+        }
+        if (mc != src.modCount) {
+            throw new ConcurrentModificationException();
+        }
+        size = used;
+        rebuildIndex();
+    }
+
+    int find(Object key, int h) {
+        int mask = index.length - 1;
+        for (int i = h * 0x9E3779B9 >>> shift; ; i = i + 1 & mask) {
+            int s = index[i];
+            if (s == 0) {
+                return ~i;
+            }
+            int e = s - 1;
+            if (hashes[e] == h) {
+                Object k = keys[e];
+                if (k == key || k != DELETED && key != null && key.equals(k)) {
+                    return e;
+                }
+            }
+        }
+    }
+
+    private void init(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        index = new int[IntObjSeqMap.tableSize(capacity)];
+        shift = Integer.numberOfLeadingZeros(index.length) + 1;
+        size = used = 0;
+    }
+
+    private void insert(int slot, K key, int h, V value) {
+        if (used == keys.length) {
+            resize(size < used - (used >> 2) ? used : used << 1);
+            slot = ~find(key, h);
+        }
+        keys[used] = key;
+        values[used] = value;
+        hashes[used] = h;
+        index[slot] = ++used;
+        size++;
+        modCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V removeAt(int e) {
+        V old = (V)values[e];
+        keys[e] = DELETED;
+        values[e] = null;
+        size--;
+        modCount++;
+        return old;
+    }
+
+    private void resize(int capacity) {
+        Object[] ks = keys, vs = values;
+        int[] hs = hashes;
+        int n = used;
+        init(capacity);
+        for (int e = 0; e < n; e++) {
+            if (ks[e] != DELETED) {
+                keys[used] = ks[e];
+                values[used] = vs[e];
+                hashes[used++] = hs[e];
+            }
+        }
+        size = used;
+        rebuildIndex();
+    }
+
+    private void rebuildIndex() {
+        int mask = index.length - 1;
+        for (int e = 0; e < used; e++) {
+            int i = hashes[e] * 0x9E3779B9 >>> shift;
+            while (index[i] != 0) {
+                i = i + 1 & mask;
+            }
+            index[i] = e + 1;
+        }
+    }
+
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (int e = 0; e < used; e++) {
+            if (keys[e] != DELETED) {
+                s.writeObject(keys[e]);
+                s.writeObject(values[e]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        init(Math.max(4, n));
+        for (int i = 0; i < n; i++) {
+            put((K)s.readObject(), (V)s.readObject());
+        }
+    }
+
+    abstract class Itr<E> implements Iterator<E> {
+        int next = skip(0);
+        int last = -1;
+        int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next < used;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= used) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = skip(next + 1);
+            return get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            expectedModCount = modCount;
+            last = -1;
+        }
+
+        abstract E get(int e);
+
+        private int skip(int e) {
+            while (e < used && keys[e] == DELETED) {
+                e++;
+            }
+            return e;
+        }
+    }
+
+    class EntryView implements Entry<K, V> {
+        final int e;
+
+        EntryView(int e) {
+            this.e = e;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K getKey() {
+            return (K)keys[e];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V)values[e];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            V old = (V)values[e];
+            values[e] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Entry) {
+                Entry<?, ?> entry = (Entry<?, ?>)o;
+                return Objects.equals(getKey(), entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
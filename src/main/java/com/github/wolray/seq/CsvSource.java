@@ -0,0 +1,341 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Predicate;
+
+/**
+ * CSV or TSV records parsed straight from the bytes of a {@link ByteSource} into one reusable {@link Row},
+ * which only records where its fields are. Quoted fields may hold separators, doubled quotes and line
+ * breaks, and selected columns are the only ones ever sliced, unescaped or decoded.
+ *
+ * @author wolray
+ */
+public class CsvSource implements Seq<CsvSource.Row> {
+    static final int BUFFER = 1 << 16;
+
+    final ByteSource source;
+    final byte sep;
+    final int quote;
+    final boolean header;
+    final String[] selectedNames;
+    final int[] selectedIndexes;
+
+    CsvSource(ByteSource source, byte sep, int quote, boolean header, String[] selectedNames, int[] selectedIndexes) {
+        this.source = source;
+        this.sep = sep;
+        this.quote = quote;
+        this.header = header;
+        this.selectedNames = selectedNames;
+        this.selectedIndexes = selectedIndexes;
+    }
+
+    public static CsvSource of(ByteSource source) {
+        return new CsvSource(source, (byte)',', '"', true, null, null);
+    }
+
+    public static CsvSource ofTsv(ByteSource source) {
+        return new CsvSource(source, (byte)'\t', -1, true, null, null);
+    }
+
+    @Override
+    public boolean until(Predicate<Row> stop) {
+        Charset charset = source.charset();
+        if (!LineReader.isAsciiCompatible(charset)) {
+            throw new IllegalStateException("not ASCII compatible: " + charset);
+        }
+        if (!header && selectedNames != null) {
+            throw new IllegalStateException("no header to select names from");
+        }
+        boolean[] res = {false};
+        source.use(is -> res[0] = parse(is, new Row(charset), stop));
+        return res[0];
+    }
+
+    public CsvSource select(int... columns) {
+        return new CsvSource(source, sep, quote, header, null, columns.clone());
+    }
+
+    public CsvSource select(String... columns) {
+        return new CsvSource(source, sep, quote, header, columns.clone(), null);
+    }
+
+    public CsvSource withQuote(char quote) {
+        return new CsvSource(source, sep, ByteSplitter.ascii(quote), header, selectedNames, selectedIndexes);
+    }
+
+    public CsvSource withSeparator(char sep) {
+        return new CsvSource(source, ByteSplitter.ascii(sep), quote, header, selectedNames, selectedIndexes);
+    }
+
+    public CsvSource withoutHeader() {
+        return new CsvSource(source, sep, quote, false, selectedNames, selectedIndexes);
+    }
+
+    public CsvSource withoutQuote() {
+        return new CsvSource(source, sep, -1, header, selectedNames, selectedIndexes);
+    }
+
+    public String[] header() {
+        if (!header) {
+            throw new IllegalStateException("no header");
+        }
+        String[][] res = {{}};
+        new CsvSource(source, sep, quote, false, null, null).until(r -> {
+            res[0] = r.toArray();
+            return true;
+        });
+        return res[0];
+    }
+
+    boolean parse(InputStream is, Row row, Predicate<Row> stop) throws IOException {
+        byte[] bytes = new byte[BUFFER];
+        row.buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int start = 0, end = 0;
+        boolean eof = false, first = header;
+        if (!header) {
+            row.select(selectedIndexes, null);
+        }
+        while (true) {
+            int next = start < end ? row.parse(start, end, eof) : -1;
+            if (next < 0) {
+                if (eof) {
+                    return false;
+                }
+                if (start > 0) {
+                    System.arraycopy(bytes, start, bytes, 0, end - start);
+                    end -= start;
+                    start = 0;
+                } else if (end == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length << 1);
+                    row.buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                int n = is.read(bytes, end, bytes.length - end);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    end += n;
+                }
+                continue;
+            }
+            boolean blank = row.count == 1 && row.starts[0] == start && row.ends[0] == start;
+            start = next;
+            if (blank) {
+                continue;
+            }
+            if (first) {
+                first = false;
+                row.select(selectedIndexes, row.toArray());
+                continue;
+            }
+            if (stop.test(row)) {
+                return true;
+            }
+        }
+    }
+
+    public class Row {
+        final Charset charset;
+        ByteBuffer buf;
+        int count;
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        boolean[] escaped = new boolean[16];
+        ByteSlice[] slices = new ByteSlice[16];
+        int[] columns;
+        int lastColumn = Integer.MAX_VALUE;
+        Map<String, Integer> indexes;
+
+        Row(Charset charset) {
+            this.charset = charset;
+        }
+
+        @Override
+        public String toString() {
+            StringJoiner joiner = new StringJoiner(String.valueOf((char)sep), "[", "]");
+            for (int i = 0, n = size(); i < n; i++) {
+                joiner.add(getString(i));
+            }
+            return joiner.toString();
+        }
+
+        /**
+         * Selected field {@code i} as a reusable slice, or an empty one if the record is short.
+         */
+        public ByteSlice get(int i) {
+            int c = columns != null ? columns[i] : i;
+            if (c >= slices.length) {
+                slices = Arrays.copyOf(slices, Math.max(c + 1, slices.length << 1));
+            }
+            ByteSlice slice = slices[c];
+            if (slice == null) {
+                slices[c] = slice = new ByteSlice();
+            }
+            if (c >= count) {
+                return slice.set(buf, 0, 0);
+            }
+            if (escaped[c]) {
+                return slice.unescape(buf, starts[c], ends[c], (byte)quote);
+            }
+            return slice.set(buf, starts[c], ends[c] - starts[c]);
+        }
+
+        public ByteSlice get(String name) {
+            return get(indexOf(name));
+        }
+
+        public double getDouble(int i) {
+            return get(i).toDouble();
+        }
+
+        public double getDouble(String name) {
+            return get(name).toDouble();
+        }
+
+        public int getInt(int i) {
+            return get(i).toInt();
+        }
+
+        public int getInt(String name) {
+            return get(name).toInt();
+        }
+
+        public long getLong(int i) {
+            return get(i).toLong();
+        }
+
+        public long getLong(String name) {
+            return get(name).toLong();
+        }
+
+        public String getString(int i) {
+            return get(i).toString(charset);
+        }
+
+        public String getString(String name) {
+            return get(name).toString(charset);
+        }
+
+        public int indexOf(String name) {
+            Integer i = indexes != null ? indexes.get(name) : null;
+            if (i == null) {
+                throw new IllegalArgumentException("unknown column: " + name);
+            }
+            return i;
+        }
+
+        public int size() {
+            return columns != null ? columns.length : count;
+        }
+
+        public String[] toArray() {
+            String[] res = new String[size()];
+            for (int i = 0; i < res.length; i++) {
+                res[i] = getString(i);
+            }
+            return res;
+        }
+
+        void select(int[] selected, String[] names) {
+            columns = selected;
+            if (selectedNames != null) {
+                columns = new int[selectedNames.length];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = Arrays.asList(names).indexOf(selectedNames[i]);
+                    if (columns[i] < 0) {
+                        throw new IllegalArgumentException("unknown column: " + selectedNames[i]);
+                    }
+                }
+            }
+            if (names != null) {
+                indexes = new HashMap<>();
+                if (columns != null) {
+                    for (int i = 0; i < columns.length; i++) {
+                        indexes.put(names[columns[i]], i);
+                    }
+                } else {
+                    for (int i = 0; i < names.length; i++) {
+                        indexes.putIfAbsent(names[i], i);
+                    }
+                }
+            }
+            if (columns != null) {
+                lastColumn = -1;
+                for (int c : columns) {
+                    lastColumn = Math.max(lastColumn, c);
+                }
+            }
+        }
+
+        /**
+         * Locates the fields of the record at {@code pos}, returning where the next record starts,
+         * or -1 if more bytes are needed to be sure where this one ends.
+         */
+        int parse(int pos, int end, boolean eof) {
+            count = 0;
+            while (true) {
+                int k;
+                if (quote < 0 && count > lastColumn) {
+                    k = ByteSlice.indexOfEol(buf, pos, end);
+                } else if (quote >= 0 && pos < end && buf.get(pos) == quote) {
+                    int i = pos + 1, q;
+                    boolean esc = false;
+                    while (true) {
+                        q = ByteSlice.indexOf(buf, i, end, (byte)quote);
+                        if (q < 0 || q + 1 == end) {
+                            if (!eof) {
+                                return -1;
+                            }
+                            break;
+                        }
+                        if (buf.get(q + 1) != quote) {
+                            break;
+                        }
+                        esc = true;
+                        i = q + 2;
+                    }
+                    add(pos + 1, q < 0 ? end : q, esc);
+                    if (q < 0) {
+                        return end;
+                    }
+                    k = ByteSlice.indexOfAny(buf, q + 1, end, sep, (byte)'\n', (byte)'\r');
+                } else {
+                    k = ByteSlice.indexOfAny(buf, pos, end, sep, (byte)'\n', (byte)'\r');
+                    add(pos, k < 0 ? end : k, false);
+                }
+                if (k < 0) {
+                    return eof ? end : -1;
+                }
+                byte b = buf.get(k);
+                if (b == sep) {
+                    pos = k + 1;
+                } else if (b == '\n') {
+                    return k + 1;
+                } else if (k + 1 < end) {
+                    return buf.get(k + 1) == '\n' ? k + 2 : k + 1;
+                } else {
+                    return eof ? end : -1;
+                }
+            }
+        }
+
+        private void add(int start, int end, boolean esc) {
+            if (count == starts.length) {
+                int cap = count << 1;
+                starts = Arrays.copyOf(starts, cap);
+                ends = Arrays.copyOf(ends, cap);
+                escaped = Arrays.copyOf(escaped, cap);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            escaped[count++] = esc;
+        }
+    }
+}
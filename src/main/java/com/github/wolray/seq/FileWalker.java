@@ -0,0 +1,197 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Entries under a directory with their attributes, where every directory is listed and its entries
+ * stat-ed by a task on the {@link Async}, so a work-stealing pool spreads a deep or wide tree over all
+ * its workers. Entries failing the filter are skipped, and so are their subtrees, and symbolic links
+ * are not followed. By default entries come in the order of a sequential pre-order walk, with a
+ * bounded number of directories listed ahead of the consumer; the {@link #unordered()} walk emits each
+ * listing as soon as it is done instead.
+ *
+ * @author wolray
+ */
+public class FileWalker implements Seq<Pair<Path, BasicFileAttributes>> {
+    static final int AHEAD = 64;
+
+    final Path root;
+    final Async async;
+    final int maxDepth;
+    final BiPredicate<Path, BasicFileAttributes> filter;
+    final boolean ordered;
+
+    FileWalker(Path root, Async async, int maxDepth, BiPredicate<Path, BasicFileAttributes> filter, boolean ordered) {
+        this.root = root;
+        this.async = async;
+        this.maxDepth = maxDepth;
+        this.filter = filter;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public boolean until(Predicate<Pair<Path, BasicFileAttributes>> stop) {
+        if (maxDepth <= 0) {
+            return false;
+        }
+        return ordered ? untilOrdered(stop) : untilUnordered(stop);
+    }
+
+    public FileWalker unordered() {
+        return new FileWalker(root, async, maxDepth, filter, false);
+    }
+
+    boolean untilOrdered(Predicate<Pair<Path, BasicFileAttributes>> stop) {
+        Walk walk = new Walk();
+        ArrayDeque<Listing> stack = new ArrayDeque<>();
+        ArrayDeque<int[]> indexes = new ArrayDeque<>();
+        int inFlight = 0;
+        stack.push(new Listing(walk, root, 1));
+        indexes.push(new int[1]);
+        try {
+            while (!stack.isEmpty()) {
+                Listing listing = stack.peek();
+                int[] i = indexes.peek();
+                if (i[0] == 0) {
+                    if (listing.task == null) {
+                        listing.run();
+                    } else {
+                        async.join(listing.task);
+                        inFlight--;
+                    }
+                    listing.check();
+                    for (Listing sub : listing.subs) {
+                        if (inFlight == AHEAD) {
+                            break;
+                        }
+                        if (sub != null) {
+                            walk.submit(sub);
+                            inFlight++;
+                        }
+                    }
+                }
+                if (i[0] == listing.entries.size()) {
+                    stack.pop();
+                    indexes.pop();
+                    continue;
+                }
+                Listing sub = listing.subs.set(i[0], null);
+                if (stop.test(listing.entries.set(i[0]++, null))) {
+                    return true;
+                }
+                if (sub != null) {
+                    stack.push(sub);
+                    indexes.push(new int[1]);
+                }
+            }
+            return false;
+        } finally {
+            walk.cancelled = true;
+        }
+    }
+
+    boolean untilUnordered(Predicate<Pair<Path, BasicFileAttributes>> stop) {
+        Walk walk = new Walk();
+        walk.done = new LinkedBlockingQueue<>();
+        walk.submit(new Listing(walk, root, 1));
+        try {
+            while (true) {
+                Listing[] listing = {null};
+                Async.apply(() -> listing[0] = walk.done.take());
+                if (listing[0] == walk.end) {
+                    return false;
+                }
+                listing[0].check();
+                for (Pair<Path, BasicFileAttributes> pair : listing[0].entries) {
+                    if (stop.test(pair)) {
+                        return true;
+                    }
+                }
+            }
+        } finally {
+            walk.cancelled = true;
+        }
+    }
+
+    class Walk {
+        final AtomicInteger pending = new AtomicInteger();
+        final Listing end = new Listing(this, null, 0);
+        LinkedBlockingQueue<Listing> done;
+        volatile boolean cancelled;
+
+        void submit(Listing listing) {
+            pending.incrementAndGet();
+            listing.task = async.submit(listing);
+        }
+    }
+
+    class Listing implements Runnable {
+        final Walk walk;
+        final Path dir;
+        final int depth;
+        final SeqList<Pair<Path, BasicFileAttributes>> entries = new SeqList<>();
+        final SeqList<Listing> subs = new SeqList<>();
+        Object task;
+        IOException error;
+
+        Listing(Walk walk, Path dir, int depth) {
+            this.walk = walk;
+            this.dir = dir;
+            this.depth = depth;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!walk.cancelled) {
+                    list();
+                }
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                if (walk.done != null) {
+                    walk.done.add(this);
+                    if (walk.pending.decrementAndGet() == 0) {
+                        walk.done.add(walk.end);
+                    }
+                }
+            }
+        }
+
+        void check() {
+            if (error != null) {
+                throw new UncheckedIOException(error);
+            }
+        }
+
+        void list() throws IOException {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path path : stream) {
+                    if (walk.cancelled) {
+                        return;
+                    }
+                    BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (filter.test(path, attrs)) {
+                        entries.add(new Pair<>(path, attrs));
+                        Listing sub = attrs.isDirectory() && depth < maxDepth ? new Listing(walk, path, depth + 1) : null;
+                        if (sub != null && walk.done != null) {
+                            walk.submit(sub);
+                        }
+                        subs.add(sub);
+                    }
+                }
+            }
+        }
+    }
+}
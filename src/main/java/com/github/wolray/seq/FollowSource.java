@@ -0,0 +1,189 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Lines of a growing file, read as they are appended like {@code tail -F}. The file is polled at an
+ * interval that doubles while it stays idle, a shrunken file is read again from its start, and a file
+ * replaced at the path is read to its end before following the new one. Only complete lines are
+ * emitted, and {@link #committed()} is the offset just past the last one the consumer went on from,
+ * to be resumed with {@link #from}.
+ *
+ * @author wolray
+ */
+public class FollowSource implements Seq<String> {
+    static final int BUFFER = 1 << 16;
+
+    final Path path;
+    final Charset charset;
+    final long offset;
+    final long minPoll;
+    final long maxPoll;
+    final long idleTimeout;
+    volatile long committed;
+
+    FollowSource(Path path, Charset charset, long offset, long minPoll, long maxPoll, long idleTimeout) {
+        this.path = path;
+        this.charset = charset;
+        this.offset = offset;
+        this.minPoll = minPoll;
+        this.maxPoll = maxPoll;
+        this.idleTimeout = idleTimeout;
+        committed = offset;
+    }
+
+    public static FollowSource of(Path path) {
+        return new FollowSource(path, Charset.defaultCharset(), 0, 10, 1000, -1);
+    }
+
+    @Override
+    public boolean until(Predicate<String> stop) {
+        if (!LineReader.isAsciiCompatible(charset)) {
+            throw new IllegalStateException("not ASCII compatible: " + charset);
+        }
+        return IOChain.apply(stop, this::follow);
+    }
+
+    /**
+     * Offset in the current file just past the last line the consumer did not stop on.
+     */
+    public long committed() {
+        return committed;
+    }
+
+    public FollowSource from(long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("negative offset");
+        }
+        return new FollowSource(path, charset, offset, minPoll, maxPoll, idleTimeout);
+    }
+
+    public FollowSource withCharset(Charset charset) {
+        return new FollowSource(path, charset, offset, minPoll, maxPoll, idleTimeout);
+    }
+
+    /**
+     * Stops with the current file once nothing new has arrived for {@code millis}, for runs that only
+     * take what has been written since the last checkpoint.
+     */
+    public FollowSource withIdleTimeout(long millis) {
+        return new FollowSource(path, charset, offset, minPoll, maxPoll, millis);
+    }
+
+    public FollowSource withPolling(long minMillis, long maxMillis) {
+        if (minMillis <= 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("non-positive size");
+        }
+        return new FollowSource(path, charset, offset, minMillis, maxMillis, idleTimeout);
+    }
+
+    static Object fileKey(Path path) throws IOException {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            Object key = attrs.fileKey();
+            return key != null ? key : attrs.creationTime();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    boolean follow(Predicate<String> stop) throws IOException {
+        byte[] bytes = new byte[BUFFER];
+        ByteBuffer buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        ByteSlice line = new ByteSlice();
+        FileChannel channel = null;
+        Object key = null;
+        long pos = offset, poll = minPoll, lastData = System.currentTimeMillis();
+        int start = 0, end = 0;
+        committed = offset;
+        try {
+            while (true) {
+                if (channel == null) {
+                    key = fileKey(path);
+                    if (key != null) {
+                        try {
+                            channel = FileChannel.open(path, StandardOpenOption.READ);
+                        } catch (NoSuchFileException e) {
+                            key = null;
+                        }
+                    }
+                }
+                int n = -1;
+                if (channel != null) {
+                    if (end == bytes.length) {
+                        if (start > 0) {
+                            System.arraycopy(bytes, start, bytes, 0, end - start);
+                            end -= start;
+                            start = 0;
+                        } else {
+                            bytes = Arrays.copyOf(bytes, bytes.length << 1);
+                            buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+                        }
+                    }
+                    n = channel.read(ByteBuffer.wrap(bytes, end, bytes.length - end), pos);
+                }
+                if (n > 0) {
+                    pos += n;
+                    end += n;
+                    poll = minPoll;
+                    lastData = System.currentTimeMillis();
+                    for (int k; (k = ByteSlice.indexOf(buf, start, end, (byte)'\n')) >= 0; ) {
+                        int e = k > start && bytes[k - 1] == '\r' ? k - 1 : k;
+                        String s = line.set(buf, start, e - start).toString(charset);
+                        if (stop.test(s)) {
+                            return true;
+                        }
+                        start = k + 1;
+                        committed = pos - (end - start);
+                    }
+                    continue;
+                }
+                if (channel != null) {
+                    Object current = fileKey(path);
+                    if (channel.size() < pos) {
+                        pos = 0;
+                        start = end = 0;
+                        committed = 0;
+                        continue;
+                    }
+                    if (current != null && !Objects.equals(current, key)) {
+                        if (start < end) {
+                            int e = bytes[end - 1] == '\r' ? end - 1 : end;
+                            String s = line.set(buf, start, e - start).toString(charset);
+                            if (stop.test(s)) {
+                                return true;
+                            }
+                        }
+                        channel.close();
+                        channel = null;
+                        pos = 0;
+                        start = end = 0;
+                        committed = 0;
+                        continue;
+                    }
+                }
+                if (idleTimeout >= 0 && System.currentTimeMillis() - lastData >= idleTimeout) {
+                    return false;
+                }
+                Async.sleep(poll);
+                poll = Math.min(poll << 1, maxPoll);
+            }
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.wolray.seq;
+
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * Pulls a key-sorted {@link Seq2} one key group at a time, optionally checking the order.
+ *
+ * @author wolray
+ */
+class GroupCursor<K, V> {
+    final Iterator<Pair<K, V>> iterator;
+    final Comparator<K> comparator;
+    final boolean validate;
+    K key;
+    V value;
+    boolean hasNext;
+
+    GroupCursor(Seq2<K, V> seq, Comparator<K> comparator, boolean validate) {
+        iterator = seq.paired().asIterable(256).iterator();
+        this.comparator = comparator;
+        this.validate = validate;
+        next();
+    }
+
+    boolean hasNext() {
+        return hasNext;
+    }
+
+    void next() {
+        K last = key;
+        boolean hadNext = hasNext;
+        hasNext = iterator.hasNext();
+        if (hasNext) {
+            Pair<K, V> pair = iterator.next();
+            if (validate && hadNext && comparator.compare(last, pair.first) > 0) {
+                throw new IllegalStateException("unsorted input: " + last + " > " + pair.first);
+            }
+            key = pair.first;
+            value = pair.second;
+        }
+    }
+
+    SeqList<V> nextGroup() {
+        K k = key;
+        SeqList<V> list = new SeqList<>();
+        while (hasNext && comparator.compare(k, key) == 0) {
+            list.add(value);
+            next();
+        }
+        return list;
+    }
+
+    void close() {
+        PushPuller.close(iterator);
+    }
+}
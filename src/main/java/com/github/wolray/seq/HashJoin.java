@@ -0,0 +1,242 @@
+package com.github.wolray.seq;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Hash join of a streamed probe side against an in-memory build side. Once the build side grows beyond
+ * {@code maxBuildSize} rows, both sides are hash-partitioned into temp files and joined partition by partition
+ * (grace hash join), which requires the spilled elements to be {@link Serializable}. The build side is the
+ * right one, except for an inner join of two {@link SizedSeq}s where the left one is smaller.
+ *
+ * @author wolray
+ */
+public class HashJoin<P, B, K> {
+    static final int FANOUT = 16;
+    static final int MAX_LEVEL = 3;
+
+    final Function<P, K> probeKey;
+    final Function<B, K> buildKey;
+    final Mode mode;
+    final int maxBuildSize;
+
+    public HashJoin(Function<P, K> probeKey, Function<B, K> buildKey, Mode mode, int maxBuildSize) {
+        if (maxBuildSize <= 0) {
+            throw new IllegalArgumentException("non-positive size");
+        }
+        this.probeKey = probeKey;
+        this.buildKey = buildKey;
+        this.mode = mode;
+        this.maxBuildSize = maxBuildSize;
+    }
+
+    /**
+     * When both sides are sized and the probe side is the smaller one, an inner join builds on the probe
+     * side instead and collects the matches of every probe element, so that pairs still come in probe order.
+     */
+    public boolean join(Seq<P> probe, Seq<B> build, BiPredicate<P, B> p) {
+        if (mode == Mode.INNER && probe instanceof SizedSeq && build instanceof SizedSeq) {
+            int n = ((SizedSeq<P>)probe).size();
+            if (n < ((SizedSeq<B>)build).size() && n <= maxBuildSize) {
+                return joinSwapped(probe, build, p);
+            }
+        }
+        return join(probe, build, p, 0);
+    }
+
+    private boolean joinSwapped(Seq<P> probe, Seq<B> build, BiPredicate<P, B> p) {
+        Table<K, Integer> indices = new Table<>();
+        int[] i = new int[1];
+        probe.consume(t -> indices.add(probeKey.apply(t), i[0]++));
+        Table<Integer, B> matches = new Table<>();
+        build.consume(b -> indices.probe(b, buildKey.apply(b), Mode.INNER, (x, j) -> {
+            matches.add(j, x);
+            return false;
+        }));
+        i[0] = 0;
+        return probe.until(t -> matches.probe(t, i[0]++, Mode.INNER, p));
+    }
+
+    private boolean join(Seq<P> probe, Seq<B> build, BiPredicate<P, B> p, int level) {
+        Table<K, B> table = new Table<>();
+        SeqList<Spill<B>> builds = new SeqList<>(FANOUT);
+        SeqList<Spill<P>> probes = new SeqList<>(FANOUT);
+        try {
+            build.consume(b -> {
+                K k = buildKey.apply(b);
+                if (builds.isEmpty()) {
+                    table.add(k, b);
+                    if (table.size > maxBuildSize && level < MAX_LEVEL) {
+                        for (int i = 0; i < FANOUT; i++) {
+                            builds.add(new Spill<>());
+                        }
+                        for (int i = 0; i < table.size; i++) {
+                            B x = table.item(i);
+                            builds.get(partition(buildKey.apply(x), level)).add(x);
+                        }
+                        table.clear();
+                    }
+                } else {
+                    builds.get(partition(k, level)).add(b);
+                }
+            });
+            if (builds.isEmpty()) {
+                return probe.until(t -> table.probe(t, probeKey.apply(t), mode, p));
+            }
+            for (int i = 0; i < FANOUT; i++) {
+                probes.add(new Spill<>());
+            }
+            probe.consume(t -> probes.get(partition(probeKey.apply(t), level)).add(t));
+            builds.consume(Spill::finish);
+            probes.consume(Spill::finish);
+            for (int i = 0; i < FANOUT; i++) {
+                if (join(probes.get(i).toSeq(), builds.get(i).toSeq(), p, level + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            builds.consume(Spill::delete);
+            probes.consume(Spill::delete);
+        }
+    }
+
+    static int partition(Object key, int level) {
+        int h = Objects.hashCode(key) ^ level * 0x9E3779B9;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 16;
+        return h & (FANOUT - 1);
+    }
+
+    public enum Mode {
+        INNER, LEFT, SEMI, ANTI
+    }
+
+    /**
+     * Multimap of key to build elements, keeping one boxed index per distinct key and chaining equal keys
+     * through flat arrays in insertion order.
+     */
+    static class Table<K, B> {
+        final HashMap<K, Integer> heads = new HashMap<>();
+        Object[] items = new Object[16];
+        int[] next = new int[16];
+        int[] tail = new int[16];
+        int size;
+
+        void add(K k, B b) {
+            if (size == items.length) {
+                int cap = size << 1;
+                items = Arrays.copyOf(items, cap);
+                next = Arrays.copyOf(next, cap);
+                tail = Arrays.copyOf(tail, cap);
+            }
+            int i = size++;
+            items[i] = b;
+            next[i] = -1;
+            Integer h = heads.putIfAbsent(k, i);
+            if (h == null) {
+                tail[i] = i;
+            } else {
+                next[tail[h]] = i;
+                tail[h] = i;
+            }
+        }
+
+        void clear() {
+            heads.clear();
+            items = new Object[16];
+            next = new int[16];
+            tail = new int[16];
+            size = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        B item(int i) {
+            return (B)items[i];
+        }
+
+        <P> boolean probe(P t, K k, Mode mode, BiPredicate<P, B> p) {
+            Integer h = heads.get(k);
+            switch (mode) {
+                case SEMI:
+                    return h != null && p.test(t, null);
+                case ANTI:
+                    return h == null && p.test(t, null);
+                default:
+                    if (h == null) {
+                        return mode == Mode.LEFT && p.test(t, null);
+                    }
+                    for (int i = h; i >= 0; i = next[i]) {
+                        if (p.test(t, item(i))) {
+                            return true;
+                        }
+                    }
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Temp file of one partition, created when the first element goes to it.
+     */
+    static class Spill<T> {
+        Path path;
+        ObjectOutputStream out;
+        int count;
+
+        void add(T t) {
+            if (path == null) {
+                path = IOChain.of(() -> Files.createTempFile("seq-join-", ".bin")).get();
+                out = IOChain.apply(path, p -> new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(p))));
+            }
+            IOChain.apply(t, x -> {
+                out.writeObject(x);
+                if ((++count & 1023) == 0) {
+                    out.reset();
+                }
+                return null;
+            });
+        }
+
+        void finish() {
+            if (out != null) {
+                IOChain.of(out::close).get();
+                out = null;
+            }
+        }
+
+        void delete() {
+            finish();
+            if (path != null) {
+                IOChain.of(() -> Files.deleteIfExists(path)).get();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Seq<T> toSeq() {
+            return p -> {
+                if (count == 0) {
+                    return false;
+                }
+                try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                    for (int i = 0; i < count; i++) {
+                        if (p.test((T)in.readObject())) {
+                            return true;
+                        }
+                    }
+                    return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        }
+    }
+}
@@ -21,6 +21,11 @@ public interface ItrSeq<T> extends Iterable<T>, Seq<T> {
         return this;
     }
 
+    @Override
+    default ItrSeq<T> asIterable(int batchSize) {
+        return this;
+    }
+
     @Override
     default ItrSeq<T> drop(int n) {
         return n <= 0 ? this : () -> {
@@ -0,0 +1,657 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Streaming UTF-8 JSON reader over a {@link ByteSource}, producing either flyweight {@link Event}s or
+ * the values found at a path such as {@code $.items[*]}, with only one such value built at a time.
+ * Several top-level values may follow each other, as in newline-delimited JSON.
+ *
+ * @author wolray
+ */
+public class JsonSource {
+    static final int BUFFER = 1 << 16;
+
+    final ByteSource source;
+
+    JsonSource(ByteSource source) {
+        this.source = source;
+    }
+
+    public static JsonSource of(ByteSource source) {
+        return new JsonSource(source);
+    }
+
+    /**
+     * Newline-delimited JSON, every non-blank line parsed in place from the line reader's slices.
+     */
+    public static Seq<Object> ndjson(ByteSource source) {
+        return p -> {
+            Lexer lexer = new Lexer();
+            Matcher matcher = new Matcher(new Segment[0], p);
+            return source.toLineSlices().until(line -> {
+                lexer.reset(line.buffer, line.offset, line.offset + line.length);
+                return IOChain.apply(lexer, lx -> parse(lx, matcher));
+            });
+        };
+    }
+
+    static Segment[] parsePath(String path) {
+        if (!path.startsWith("$")) {
+            throw new IllegalArgumentException("path not starting with $: " + path);
+        }
+        SeqList<Segment> list = new SeqList<>();
+        int i = 1, n = path.length();
+        while (i < n) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                int j = i + 1;
+                while (j < n && path.charAt(j) != '.' && path.charAt(j) != '[') {
+                    j++;
+                }
+                String name = path.substring(i + 1, j);
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("empty name in path: " + path);
+                }
+                list.add(name.equals("*") ? new Segment(null, -1) : new Segment(name, -1));
+                i = j;
+            } else if (c == '[') {
+                int j = path.indexOf(']', i);
+                if (j < 0) {
+                    throw new IllegalArgumentException("unclosed [ in path: " + path);
+                }
+                String s = path.substring(i + 1, j);
+                if (s.equals("*")) {
+                    list.add(new Segment(null, -1));
+                } else if (s.length() >= 2 && s.charAt(0) == '\'' && s.charAt(s.length() - 1) == '\'') {
+                    list.add(new Segment(s.substring(1, s.length() - 1), -1));
+                } else {
+                    try {
+                        list.add(new Segment(null, Integer.parseInt(s)));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("bad index in path: " + path);
+                    }
+                }
+                i = j + 1;
+            } else {
+                throw new IllegalArgumentException("unexpected '" + c + "' in path: " + path);
+            }
+        }
+        return list.toArray(new Segment[0]);
+    }
+
+    static boolean parse(Lexer lx, Predicate<Event> p) throws IOException {
+        Event e = lx.event;
+        boolean[] objects = new boolean[32];
+        int depth = 0, state = Lexer.VALUE;
+        while (true) {
+            int c = lx.skipWhitespace();
+            if (c < 0) {
+                if (depth > 0 || state != Lexer.VALUE && state != Lexer.AFTER) {
+                    throw lx.error("unexpected end");
+                }
+                return false;
+            }
+            if (state == Lexer.AFTER) {
+                if (depth == 0) {
+                    state = Lexer.VALUE;
+                    continue;
+                }
+                if (c == ',') {
+                    lx.pos++;
+                    state = objects[depth - 1] ? Lexer.NAME : Lexer.VALUE;
+                    continue;
+                }
+            }
+            if (state != Lexer.VALUE && state != Lexer.NAME && depth > 0 && c == (objects[depth - 1] ? '}' : ']')) {
+                lx.pos++;
+                depth--;
+                if (p.test(e.set(objects[depth] ? Type.END_OBJECT : Type.END_ARRAY, depth))) {
+                    return true;
+                }
+                state = Lexer.AFTER;
+                continue;
+            }
+            if (state == Lexer.AFTER) {
+                throw lx.error("expected , or end of container");
+            }
+            if (state == Lexer.FIRST_NAME || state == Lexer.NAME) {
+                if (c != '"') {
+                    throw lx.error("expected name");
+                }
+                lx.readString();
+                if (p.test(e.set(Type.NAME, depth))) {
+                    return true;
+                }
+                if (lx.skipWhitespace() != ':') {
+                    throw lx.error("expected :");
+                }
+                lx.pos++;
+                state = Lexer.VALUE;
+                continue;
+            }
+            Type type;
+            if (c == '{' || c == '[') {
+                lx.pos++;
+                type = c == '{' ? Type.START_OBJECT : Type.START_ARRAY;
+                if (depth == objects.length) {
+                    objects = Arrays.copyOf(objects, depth << 1);
+                }
+                objects[depth] = c == '{';
+                state = c == '{' ? Lexer.FIRST_NAME : Lexer.FIRST_VALUE;
+                if (p.test(e.set(type, depth++))) {
+                    return true;
+                }
+                continue;
+            }
+            if (c == '"') {
+                lx.readString();
+                type = Type.STRING;
+            } else {
+                type = lx.readWord();
+            }
+            state = Lexer.AFTER;
+            if (p.test(e.set(type, depth))) {
+                return true;
+            }
+        }
+    }
+
+    public Seq<Event> events() {
+        return p -> until(p);
+    }
+
+    public Object value() {
+        return values("$").first();
+    }
+
+    public Seq<Object> values(String path) {
+        Segment[] segments = parsePath(path);
+        return p -> until(new Matcher(segments, p));
+    }
+
+    boolean until(Predicate<Event> p) {
+        boolean[] res = {false};
+        source.use(is -> res[0] = parse(new Lexer(is), p));
+        return res[0];
+    }
+
+    public enum Type {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, NAME, STRING, NUMBER, TRUE, FALSE, NULL
+    }
+
+    /**
+     * Current token of the reader, only valid until the next event is emitted.
+     */
+    public static class Event {
+        final Lexer lexer;
+        final ByteSlice raw = new ByteSlice();
+        Type type;
+        int depth;
+
+        Event(Lexer lexer) {
+            this.lexer = lexer;
+        }
+
+        @Override
+        public String toString() {
+            return type + (type == Type.NAME || type == Type.STRING || type == Type.NUMBER ? "(" + text() + ")" : "");
+        }
+
+        public Type type() {
+            return type;
+        }
+
+        /**
+         * Number of containers around this token, not counting the one it starts or ends.
+         */
+        public int depth() {
+            return depth;
+        }
+
+        /**
+         * Undecoded bytes of a name, string or number, without quotes.
+         */
+        public ByteSlice raw() {
+            return raw.set(lexer.buf, lexer.from, lexer.to - lexer.from);
+        }
+
+        public String text() {
+            return lexer.escaped ? lexer.unescape() : raw().toString(StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Scalar value as String, Long, BigInteger, Double, Boolean or null.
+         */
+        public Object value() {
+            switch (type) {
+                case NAME:
+                case STRING:
+                    return text();
+                case NUMBER:
+                    ByteSlice s = raw();
+                    if (s.indexOf((byte)'.', 0) < 0 && s.indexOf((byte)'e', 0) < 0 && s.indexOf((byte)'E', 0) < 0) {
+                        try {
+                            return s.toLong();
+                        } catch (NumberFormatException e) {
+                            return new BigInteger(s.toString());
+                        }
+                    }
+                    return s.toDouble();
+                case TRUE:
+                    return true;
+                case FALSE:
+                    return false;
+                case NULL:
+                    return null;
+                default:
+                    throw new IllegalStateException(type + " is not a scalar");
+            }
+        }
+
+        Event set(Type type, int depth) {
+            this.type = type;
+            this.depth = depth;
+            return this;
+        }
+    }
+
+    static class Segment {
+        final String name;
+        final byte[] bytes;
+        final int index;
+
+        Segment(String name, int index) {
+            this.name = name;
+            this.bytes = name != null ? name.getBytes(StandardCharsets.UTF_8) : null;
+            this.index = index;
+        }
+
+        boolean matchesName(Event e) {
+            if (index >= 0) {
+                return false;
+            }
+            if (name == null) {
+                return true;
+            }
+            if (e.lexer.escaped) {
+                return name.equals(e.text());
+            }
+            ByteSlice raw = e.raw();
+            if (raw.length != bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (raw.byteAt(i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean matchesIndex(int i) {
+            return name == null && (index < 0 || index == i);
+        }
+    }
+
+    /**
+     * Follows the path through the events, building every value found at its end.
+     */
+    static class Matcher implements Predicate<Event> {
+        final Segment[] segments;
+        final Predicate<Object> downstream;
+        boolean[] matched = new boolean[32];
+        int[] indexes = new int[32];
+        boolean nameMatched;
+        Object[] building = new Object[32];
+        String[] names = new String[32];
+        int base = -1;
+
+        Matcher(Segment[] segments, Predicate<Object> downstream) {
+            this.segments = segments;
+            this.downstream = downstream;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean test(Event e) {
+            int d = e.depth;
+            if (base >= 0) {
+                return build(e, d);
+            }
+            if (e.type == Type.END_OBJECT || e.type == Type.END_ARRAY) {
+                return false;
+            }
+            if (e.type == Type.NAME) {
+                nameMatched = d <= segments.length && matched(d - 1) && segments[d - 1].matchesName(e);
+                return false;
+            }
+            boolean match;
+            if (d == 0) {
+                match = true;
+            } else if (indexes[d - 1] >= 0) {
+                match = d <= segments.length && matched(d - 1) && segments[d - 1].matchesIndex(++indexes[d - 1] - 1);
+            } else {
+                match = nameMatched;
+            }
+            if (match && d == segments.length) {
+                if (e.type == Type.START_OBJECT || e.type == Type.START_ARRAY) {
+                    base = d;
+                    return build(e, d);
+                }
+                return downstream.test(e.value());
+            }
+            if (e.type == Type.START_OBJECT || e.type == Type.START_ARRAY) {
+                ensure(d);
+                matched[d] = match;
+                indexes[d] = e.type == Type.START_ARRAY ? 0 : -1;
+            }
+            return false;
+        }
+
+        boolean matched(int d) {
+            return d < 0 || matched[d];
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean build(Event e, int d) {
+            int level = d - base;
+            switch (e.type) {
+                case NAME:
+                    names[level - 1] = e.text();
+                    return false;
+                case START_OBJECT:
+                case START_ARRAY:
+                    Object container = e.type == Type.START_OBJECT ? new SeqMap<String, Object>() : new SeqList<>();
+                    if (level >= building.length) {
+                        building = Arrays.copyOf(building, level << 1);
+                        names = Arrays.copyOf(names, level << 1);
+                    }
+                    if (level > 0) {
+                        add(level - 1, container);
+                    }
+                    building[level] = container;
+                    return false;
+                case END_OBJECT:
+                case END_ARRAY:
+                    if (level == 0) {
+                        Object value = building[0];
+                        building[0] = null;
+                        base = -1;
+                        return downstream.test(value);
+                    }
+                    building[level] = null;
+                    return false;
+                default:
+                    add(level - 1, e.value());
+                    return false;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void add(int level, Object value) {
+            Object parent = building[level];
+            if (parent instanceof SeqList) {
+                ((SeqList<Object>)parent).add(value);
+            } else {
+                ((SeqMap<String, Object>)parent).put(names[level], value);
+            }
+        }
+
+        void ensure(int d) {
+            if (d >= matched.length) {
+                matched = Arrays.copyOf(matched, d << 1);
+                indexes = Arrays.copyOf(indexes, d << 1);
+            }
+        }
+    }
+
+    static class Lexer {
+        static final int VALUE = 0, FIRST_VALUE = 1, NAME = 2, FIRST_NAME = 3, AFTER = 4;
+
+        final Event event = new Event(this);
+        InputStream is;
+        byte[] bytes;
+        ByteBuffer buf;
+        int pos, end, start;
+        int from, to;
+        boolean escaped, eof;
+        long consumed;
+
+        Lexer() {}
+
+        Lexer(InputStream is) {
+            this.is = is;
+            bytes = new byte[BUFFER];
+            buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void reset(ByteBuffer buf, int from, int to) {
+            this.buf = buf;
+            pos = start = from;
+            end = to;
+            eof = true;
+        }
+
+        IllegalStateException error(String message) {
+            return new IllegalStateException("malformed JSON at byte " + (consumed + pos) + ": " + message);
+        }
+
+        boolean fill() throws IOException {
+            if (eof) {
+                return false;
+            }
+            if (end == bytes.length) {
+                if (start > 0) {
+                    System.arraycopy(bytes, start, bytes, 0, end - start);
+                    consumed += start;
+                    pos -= start;
+                    end -= start;
+                    start = 0;
+                } else {
+                    bytes = Arrays.copyOf(bytes, bytes.length << 1);
+                    buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            int n = is.read(bytes, end, bytes.length - end);
+            if (n < 0) {
+                eof = true;
+                return false;
+            }
+            end += n;
+            return true;
+        }
+
+        int skipWhitespace() throws IOException {
+            while (true) {
+                while (pos < end) {
+                    byte b = buf.get(pos);
+                    if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                        return b & 0xFF;
+                    }
+                    pos++;
+                }
+                start = pos;
+                if (!fill()) {
+                    return -1;
+                }
+            }
+        }
+
+        void readString() throws IOException {
+            start = pos;
+            escaped = false;
+            int i = pos + 1;
+            while (true) {
+                int q = ByteSlice.indexOfAny(buf, i, end, (byte)'"', (byte)'\\', (byte)'"');
+                if (q >= 0 && buf.get(q) == '"') {
+                    from = start + 1;
+                    to = q;
+                    pos = q + 1;
+                    return;
+                }
+                if (q >= 0 && q + 1 < end) {
+                    escaped = true;
+                    i = q + 2;
+                    continue;
+                }
+                int rel = (q >= 0 ? q : end) - start;
+                if (!fill()) {
+                    throw error("unterminated string");
+                }
+                i = start + rel;
+            }
+        }
+
+        Type readWord() throws IOException {
+            start = pos;
+            escaped = false;
+            int i = pos;
+            while (true) {
+                while (i < end && isWordByte(buf.get(i))) {
+                    i++;
+                }
+                int rel = i - start;
+                if (i < end || !fill()) {
+                    i = start + rel;
+                    break;
+                }
+                i = start + rel;
+            }
+            from = start;
+            to = pos = i;
+            int len = to - from;
+            byte b = len > 0 ? buf.get(from) : 0;
+            if (b == '-' || b >= '0' && b <= '9') {
+                if (!isNumber()) {
+                    throw error("malformed number");
+                }
+                return Type.NUMBER;
+            }
+            if (len == 4 && b == 't' && matches("true")) {
+                return Type.TRUE;
+            }
+            if (len == 5 && b == 'f' && matches("false")) {
+                return Type.FALSE;
+            }
+            if (len == 4 && b == 'n' && matches("null")) {
+                return Type.NULL;
+            }
+            throw error("unexpected token");
+        }
+
+        /**
+         * Whether the word matches {@code -?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?}, so that numbers
+         * which are only skipped are still validated.
+         */
+        boolean isNumber() {
+            int i = from < to && buf.get(from) == '-' ? from + 1 : from;
+            int d = digits(i);
+            if (d == i || buf.get(i) == '0' && d > i + 1) {
+                return false;
+            }
+            i = d;
+            if (i < to && buf.get(i) == '.') {
+                d = digits(++i);
+                if (d == i) {
+                    return false;
+                }
+                i = d;
+            }
+            if (i < to && (buf.get(i) == 'e' || buf.get(i) == 'E')) {
+                if (++i < to && (buf.get(i) == '+' || buf.get(i) == '-')) {
+                    i++;
+                }
+                d = digits(i);
+                if (d == i) {
+                    return false;
+                }
+                i = d;
+            }
+            return i == to;
+        }
+
+        int digits(int i) {
+            while (i < to && buf.get(i) >= '0' && buf.get(i) <= '9') {
+                i++;
+            }
+            return i;
+        }
+
+        boolean isWordByte(byte b) {
+            return b >= 'a' && b <= 'z' || b >= '0' && b <= '9' || b == '-' || b == '+' || b == '.' || b == 'E';
+        }
+
+        boolean matches(String literal) {
+            for (int i = 0; i < literal.length(); i++) {
+                if (buf.get(from + i) != literal.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String unescape() {
+            StringBuilder sb = new StringBuilder(to - from);
+            byte[] run = new byte[to - from];
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                byte b = buf.get(i);
+                if (b != '\\') {
+                    run[n++] = b;
+                    continue;
+                }
+                if (n > 0) {
+                    sb.append(new String(run, 0, n, StandardCharsets.UTF_8));
+                    n = 0;
+                }
+                byte c = buf.get(++i);
+                switch (c) {
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        if (i + 4 >= to) {
+                            throw error("bad unicode escape");
+                        }
+                        int code = 0;
+                        for (int j = 1; j <= 4; j++) {
+                            int h = Character.digit(buf.get(i + j), 16);
+                            if (h < 0) {
+                                throw error("bad unicode escape");
+                            }
+                            code = code << 4 | h;
+                        }
+                        sb.append((char)code);
+                        i += 4;
+                        break;
+                    default:
+                        sb.append((char)c);
+                }
+            }
+            if (n > 0) {
+                sb.append(new String(run, 0, n, StandardCharsets.UTF_8));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Start offsets of every {@code step}-th line of a text file, so a line range is found by one seek and
+ * a scan of less than {@code step} lines. Lines end as in {@link LineReader}. The index can be saved
+ * next to the file and is only loaded back while the file keeps its size and modified time.
+ *
+ * @author wolray
+ */
+public class LineIndex {
+    static final int MAGIC = 0x4C494458;
+    static final int BLOCK = 1 << 20;
+
+    final Path path;
+    final int step;
+    final long lineCount;
+    final long size;
+    final long modified;
+    final long[] offsets;
+
+    LineIndex(Path path, int step, long lineCount, long size, long modified, long[] offsets) {
+        this.path = path;
+        this.step = step;
+        this.lineCount = lineCount;
+        this.size = size;
+        this.modified = modified;
+        this.offsets = offsets;
+    }
+
+    public static LineIndex build(Path path, int step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("non-positive size");
+        }
+        return IOChain.apply(path, p -> {
+            long modified = Files.getLastModifiedTime(p).toMillis();
+            try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+                long[][] offsets = {new long[16]};
+                long[] count = {0};
+                scan(channel, 0, BLOCK, pos -> {
+                    long c = count[0]++;
+                    if (c % step == 0) {
+                        int i = (int)(c / step);
+                        if (i == offsets[0].length) {
+                            offsets[0] = Arrays.copyOf(offsets[0], i << 1);
+                        }
+                        offsets[0][i] = pos;
+                    }
+                    return false;
+                });
+                int n = (int)((count[0] + step - 1) / step);
+                return new LineIndex(p, step, count[0], channel.size(), modified, Arrays.copyOf(offsets[0], n));
+            }
+        });
+    }
+
+    /**
+     * The index saved next to the file, or null if there is none or the file has changed since.
+     */
+    public static LineIndex load(Path path) {
+        return IOChain.apply(path, p -> {
+            Path file = indexFile(p);
+            if (!Files.exists(file) || !Files.exists(p)) {
+                return null;
+            }
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buf.remaining() < 36 || buf.getInt() != MAGIC) {
+                return null;
+            }
+            int step = buf.getInt();
+            long lineCount = buf.getLong(), size = buf.getLong(), modified = buf.getLong();
+            int n = buf.getInt();
+            if (size != Files.size(p) || modified != Files.getLastModifiedTime(p).toMillis() || buf.remaining() != n * 8L) {
+                return null;
+            }
+            long[] offsets = new long[n];
+            buf.asLongBuffer().get(offsets);
+            return new LineIndex(p, step, lineCount, size, modified, offsets);
+        });
+    }
+
+    /**
+     * The saved index if it is still valid and has the same step, otherwise a new one which is saved.
+     */
+    public static LineIndex of(Path path, int step) {
+        LineIndex index = load(path);
+        if (index == null || index.step != step) {
+            index = build(path, step);
+            index.save();
+        }
+        return index;
+    }
+
+    static Path indexFile(Path path) {
+        return path.resolveSibling(path.getFileName() + ".lidx");
+    }
+
+    /**
+     * Calls {@code start} with the offset of each line starting at or after {@code from}, which must be
+     * a line start, until it returns true.
+     */
+    static void scan(FileChannel channel, long from, int blockSize, LongPredicate start) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(blockSize).order(ByteOrder.LITTLE_ENDIAN);
+        boolean atStart = true, skipLf = false;
+        for (long base = from; ; ) {
+            buf.clear();
+            int len = channel.read(buf, base);
+            if (len <= 0) {
+                return;
+            }
+            int i = 0;
+            if (skipLf) {
+                skipLf = false;
+                if (buf.get(0) == '\n') {
+                    i = 1;
+                }
+            }
+            while (i < len) {
+                if (atStart) {
+                    if (start.test(base + i)) {
+                        return;
+                    }
+                    atStart = false;
+                }
+                int k = ByteSlice.indexOfEol(buf, i, len);
+                if (k < 0) {
+                    break;
+                }
+                atStart = true;
+                i = k + 1;
+                if (buf.get(k) == '\r') {
+                    if (i == len) {
+                        skipLf = true;
+                    } else if (buf.get(i) == '\n') {
+                        i++;
+                    }
+                }
+            }
+            base += len;
+        }
+    }
+
+    public long lineCount() {
+        return lineCount;
+    }
+
+    public int step() {
+        return step;
+    }
+
+    /**
+     * Offset where {@code line} starts, or the file size for {@code lineCount()}.
+     */
+    public long offsetOf(long line) {
+        if (line < 0 || line > lineCount) {
+            throw new IndexOutOfBoundsException("line " + line + " of " + lineCount);
+        }
+        if (line == lineCount) {
+            return size;
+        }
+        long base = offsets[(int)(line / step)];
+        long skip = line % step;
+        if (skip == 0) {
+            return base;
+        }
+        return IOChain.apply(path, p -> {
+            try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+                long[] res = {size};
+                long[] i = {0};
+                scan(channel, base, 1 << 16, pos -> {
+                    if (i[0]++ == skip) {
+                        res[0] = pos;
+                        return true;
+                    }
+                    return false;
+                });
+                return res[0];
+            }
+        });
+    }
+
+    /**
+     * Lines {@code [from, to)}, clipped to the end of the file.
+     */
+    public Seq<String> lines(long from, long to) {
+        return slice(from, to).toLines();
+    }
+
+    /**
+     * Bytes of lines {@code [from, to)}, clipped to the end of the file.
+     */
+    public ByteSource slice(long from, long to) {
+        ByteSource.checkRange(from, to - from);
+        long start = offsetOf(Math.min(from, lineCount));
+        long end = offsetOf(Math.min(to, lineCount));
+        return ByteSource.of(path, start, end - start);
+    }
+
+    /**
+     * Up to {@code parts} contiguous line ranges covering the file, split at indexed lines so no
+     * scanning is needed, for handing to parallel workers.
+     */
+    public SeqList<ByteSource> split(int parts) {
+        if (parts <= 0) {
+            throw new IllegalArgumentException("non-positive size");
+        }
+        SeqList<ByteSource> res = new SeqList<>();
+        int n = offsets.length;
+        for (int i = 0, prev = 0; i < parts && prev < n; i++) {
+            int next = (int)((long)n * (i + 1) / parts);
+            if (next > prev) {
+                long end = next < n ? offsets[next] : size;
+                res.add(ByteSource.of(path, offsets[prev], end - offsets[prev]));
+                prev = next;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Writes a temp file next to the index file and moves it into place, so that a reader never sees a
+     * partly written index.
+     */
+    public Path save() {
+        Path file = indexFile(path);
+        ByteBuffer buf = ByteBuffer.allocate(36 + offsets.length * 8);
+        buf.putInt(MAGIC).putInt(step).putLong(lineCount).putLong(size).putLong(modified).putInt(offsets.length);
+        buf.asLongBuffer().put(offsets);
+        return IOChain.apply(file, f -> {
+            Path tmp = Files.createTempFile(f.toAbsolutePath().getParent(), f.getFileName() + ".", ".tmp");
+            try {
+                Files.write(tmp, buf.array());
+                try {
+                    return Files.move(tmp, f, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    return Files.move(tmp, f, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        });
+    }
+}
@@ -0,0 +1,222 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Byte-level line splitting with the same terminators as {@link java.io.BufferedReader#readLine()},
+ * either over a file mapped window by window or over a stream read into a growable buffer.
+ * Every line is handed out as the same reusable {@link ByteSlice}, valid until the next line: a mapped
+ * window is unmapped as soon as the scan moves past it, where the runtime allows it.
+ *
+ * @author wolray
+ */
+public class LineReader {
+    static final int WINDOW = 1 << 26;
+    static final int BUFFER = 1 << 16;
+    static final Consumer<ByteBuffer> UNMAP = unmapper();
+
+    public static boolean isAsciiCompatible(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8)
+            || charset.equals(StandardCharsets.ISO_8859_1)
+            || charset.equals(StandardCharsets.US_ASCII)) {
+            return true;
+        }
+        return charset.canEncode()
+            && charset.newEncoder().maxBytesPerChar() == 1
+            && Arrays.equals("\r\n".getBytes(charset), new byte[]{'\r', '\n'});
+    }
+
+    /**
+     * Lines decoded while reporting malformed or unmappable input like {@link CharsetDecoder#decode(ByteBuffer)}
+     * does. A line is only decoded again strictly when the fast decoding yields a replacement char.
+     */
+    public static Seq<String> decode(Seq<ByteSlice> lines, Charset charset) {
+        return p -> {
+            CharsetDecoder decoder = charset.newDecoder();
+            return lines.until(s -> {
+                String line = s.toString(charset);
+                if (line.indexOf('\uFFFD') >= 0) {
+                    ByteBuffer buf = s.buffer.duplicate();
+                    buf.limit(s.offset + s.length).position(s.offset);
+                    IOChain.apply(buf, decoder::decode);
+                }
+                return p.test(line);
+            });
+        };
+    }
+
+    public static boolean until(byte[] bytes, Predicate<ByteSlice> predicate) {
+        return until(bytes, 0, bytes.length, predicate);
+    }
+
+    public static boolean until(byte[] bytes, int from, int to, Predicate<ByteSlice> predicate) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        ByteSlice slice = new ByteSlice();
+        int start = from, i, n = to;
+        while ((i = ByteSlice.indexOfEol(buf, start, n)) >= 0) {
+            if (predicate.test(slice.set(buf, start, i - start))) {
+                return true;
+            }
+            if (bytes[i] == '\r' && i + 1 < n && bytes[i + 1] == '\n') {
+                i++;
+            }
+            start = i + 1;
+        }
+        return start < n && predicate.test(slice.set(buf, start, n - start));
+    }
+
+    public static boolean until(Path path, Predicate<ByteSlice> predicate) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return until(channel, 0, channel.size(), WINDOW, predicate);
+        }
+    }
+
+    /**
+     * Lines of the byte range {@code [from, to)}, which should start at a line boundary.
+     */
+    public static boolean until(Path path, long from, long to, Predicate<ByteSlice> predicate) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return until(channel, from, to, WINDOW, predicate);
+        }
+    }
+
+    static boolean until(FileChannel channel, long from, long to, int window, Predicate<ByteSlice> predicate) throws IOException {
+        ByteSlice slice = new ByteSlice();
+        ByteBuffer buf = null;
+        long pos = from;
+        boolean skipLf = false;
+        while (pos < to) {
+            int n = (int)Math.min(window, to - pos);
+            if (buf != null) {
+                UNMAP.accept(buf);
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, n).order(ByteOrder.LITTLE_ENDIAN);
+            int start = 0, i;
+            if (skipLf) {
+                skipLf = false;
+                if (buf.get(0) == '\n') {
+                    start = 1;
+                }
+            }
+            boolean found = false;
+            while ((i = ByteSlice.indexOfEol(buf, start, n)) >= 0) {
+                found = true;
+                if (predicate.test(slice.set(buf, start, i - start))) {
+                    return true;
+                }
+                if (buf.get(i) == '\r') {
+                    if (i + 1 == n) {
+                        skipLf = true;
+                    } else if (buf.get(i + 1) == '\n') {
+                        i++;
+                    }
+                }
+                start = i + 1;
+            }
+            if (pos + n == to) {
+                return start < n && predicate.test(slice.set(buf, start, n - start));
+            }
+            if (!found) {
+                window = (int)Math.min(Integer.MAX_VALUE - 8, (long)window << 1);
+            }
+            pos += start;
+        }
+        return false;
+    }
+
+    public static boolean until(InputStream is, Predicate<ByteSlice> predicate) throws IOException {
+        byte[] bytes = new byte[BUFFER];
+        ByteBuffer buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        ByteSlice slice = new ByteSlice();
+        int start = 0, end = 0;
+        boolean skipLf = false;
+        while (true) {
+            if (end == bytes.length) {
+                if (start > 0) {
+                    System.arraycopy(bytes, start, bytes, 0, end - start);
+                    end -= start;
+                    start = 0;
+                } else {
+                    bytes = Arrays.copyOf(bytes, bytes.length << 1);
+                    buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            int n = is.read(bytes, end, bytes.length - end);
+            if (n < 0) {
+                break;
+            }
+            int scan = end, i;
+            end += n;
+            if (skipLf && n > 0) {
+                skipLf = false;
+                if (bytes[scan] == '\n') {
+                    start = ++scan;
+                }
+            }
+            while ((i = ByteSlice.indexOfEol(buf, scan, end)) >= 0) {
+                if (predicate.test(slice.set(buf, start, i - start))) {
+                    return true;
+                }
+                if (bytes[i] == '\r') {
+                    if (i + 1 == end) {
+                        skipLf = true;
+                    } else if (bytes[i + 1] == '\n') {
+                        i++;
+                    }
+                }
+                start = scan = i + 1;
+            }
+        }
+        return start < end && predicate.test(slice.set(buf, start, end - start));
+    }
+
+    /**
+     * Explicit release of a mapped buffer through {@code Unsafe.invokeCleaner} on Java 9+ or the buffer's
+     * cleaner on Java 8, leaving it to the GC when neither is reachable.
+     */
+    static Consumer<ByteBuffer> unmapper() {
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            return buf -> invoke(invokeCleaner, unsafe, buf);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            try {
+                Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return buf -> {
+                    Object c = invoke(cleaner, buf);
+                    if (c != null) {
+                        invoke(clean, c);
+                    }
+                };
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                return buf -> {};
+            }
+        }
+    }
+
+    static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
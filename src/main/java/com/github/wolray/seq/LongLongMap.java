@@ -0,0 +1,135 @@
+package com.github.wolray.seq;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+/**
+ * Insertion-ordered {@code long} to {@code long} map laid out like {@link IntObjSeqMap}, mainly for counters.
+ *
+ * @author wolray
+ */
+public class LongLongMap implements Seq2<Long, Long> {
+    private long[] keys;
+    private long[] values;
+    private int[] slots;
+    private int size;
+
+    public LongLongMap() {
+        this(16);
+    }
+
+    public LongLongMap(int initialCapacity) {
+        int cap = Math.max(4, initialCapacity);
+        keys = new long[cap];
+        values = new long[cap];
+        slots = new int[IntObjSeqMap.tableSize(cap)];
+    }
+
+    @Override
+    public void consume(BiConsumer<Long, Long> consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(keys[i], values[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        for (int i = 0; i < size; i++) {
+            joiner.add(keys[i] + "=" + values[i]);
+        }
+        return joiner.toString();
+    }
+
+    @Override
+    public boolean until(BiPredicate<Long, Long> predicate) {
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(keys[i], values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    public long add(long key, long delta) {
+        int i = find(key);
+        if (i >= 0) {
+            return values[i] += delta;
+        }
+        add(~i, key, delta);
+        return delta;
+    }
+
+    public long get(long key) {
+        return getOrDefault(key, 0);
+    }
+
+    public long getOrDefault(long key, long defaultValue) {
+        int i = find(key);
+        return i >= 0 ? values[i] : defaultValue;
+    }
+
+    public long put(long key, long value) {
+        int i = find(key);
+        if (i >= 0) {
+            long old = values[i];
+            values[i] = value;
+            return old;
+        }
+        add(~i, key, value);
+        return 0;
+    }
+
+    public long keyAt(int i) {
+        return keys[i];
+    }
+
+    public long valueAt(int i) {
+        return values[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(long key) {
+        int mask = slots.length - 1;
+        for (int i = IntObjSeqMap.hash(key) & mask; ; i = i + 1 & mask) {
+            int s = slots[i];
+            if (s == 0) {
+                return ~i;
+            }
+            if (keys[s - 1] == key) {
+                return s - 1;
+            }
+        }
+    }
+
+    private void add(int slot, long key, long value) {
+        if (size == keys.length) {
+            int cap = size << 1;
+            keys = Arrays.copyOf(keys, cap);
+            values = Arrays.copyOf(values, cap);
+        }
+        keys[size] = key;
+        values[size] = value;
+        slots[slot] = ++size;
+        if (size << 1 > slots.length) {
+            slots = new int[slots.length << 1];
+            int mask = slots.length - 1;
+            for (int e = 0; e < size; e++) {
+                int i = IntObjSeqMap.hash(keys[e]) & mask;
+                while (slots[i] != 0) {
+                    i = i + 1 & mask;
+                }
+                slots[i] = e + 1;
+            }
+        }
+    }
+}
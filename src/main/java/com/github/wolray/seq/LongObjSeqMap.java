@@ -0,0 +1,157 @@
+package com.github.wolray.seq;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Insertion-ordered map from primitive {@code long} keys, with entries stored densely in arrays and
+ * located through a linear probing table of entry positions. Entries can not be removed.
+ *
+ * @author wolray
+ */
+public class LongObjSeqMap<V> implements Seq2<Long, V> {
+    private long[] keys;
+    private Object[] values;
+    private int[] slots;
+    private int size;
+
+    public LongObjSeqMap() {
+        this(16);
+    }
+
+    public LongObjSeqMap(int initialCapacity) {
+        int cap = Math.max(4, initialCapacity);
+        keys = new long[cap];
+        values = new Object[cap];
+        slots = new int[IntObjSeqMap.tableSize(cap)];
+    }
+
+    @Override
+    public void consume(BiConsumer<Long, V> consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(keys[i], valueAt(i));
+        }
+    }
+
+    @Override
+    public <T> LongObjSeqMap<T> mapValues(Function<V, T> function) {
+        LongObjSeqMap<T> res = new LongObjSeqMap<>(0);
+        res.keys = keys.clone();
+        res.values = new Object[keys.length];
+        res.slots = slots.clone();
+        res.size = size;
+        for (int i = 0; i < size; i++) {
+            res.values[i] = function.apply(valueAt(i));
+        }
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        for (int i = 0; i < size; i++) {
+            joiner.add(keys[i] + "=" + values[i]);
+        }
+        return joiner.toString();
+    }
+
+    @Override
+    public boolean until(BiPredicate<Long, V> predicate) {
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(keys[i], valueAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    public V get(long key) {
+        int i = find(key);
+        return i >= 0 ? valueAt(i) : null;
+    }
+
+    public V getOrCompute(long key, Supplier<? extends V> supplier) {
+        int i = find(key);
+        if (i >= 0) {
+            return valueAt(i);
+        }
+        V v = supplier.get();
+        add(~i, key, v);
+        return v;
+    }
+
+    public V put(long key, V value) {
+        int i = find(key);
+        if (i >= 0) {
+            V old = valueAt(i);
+            values[i] = value;
+            return old;
+        }
+        add(~i, key, value);
+        return null;
+    }
+
+    public long keyAt(int i) {
+        return keys[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int i) {
+        return (V)values[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> LongObjSeqMap<T> mapValuesInPlace(Function<V, T> function) {
+        for (int i = 0; i < size; i++) {
+            values[i] = function.apply(valueAt(i));
+        }
+        return (LongObjSeqMap<T>)this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(long key) {
+        int mask = slots.length - 1;
+        for (int i = IntObjSeqMap.hash(key) & mask; ; i = i + 1 & mask) {
+            int s = slots[i];
+            if (s == 0) {
+                return ~i;
+            }
+            if (keys[s - 1] == key) {
+                return s - 1;
+            }
+        }
+    }
+
+    private void add(int slot, long key, V value) {
+        if (size == keys.length) {
+            int cap = size << 1;
+            keys = Arrays.copyOf(keys, cap);
+            values = Arrays.copyOf(values, cap);
+        }
+        keys[size] = key;
+        values[size] = value;
+        slots[slot] = ++size;
+        if (size << 1 > slots.length) {
+            slots = new int[slots.length << 1];
+            int mask = slots.length - 1;
+            for (int e = 0; e < size; e++) {
+                int i = IntObjSeqMap.hash(keys[e]) & mask;
+                while (slots[i] != 0) {
+                    i = i + 1 & mask;
+                }
+                slots[i] = e + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.github.wolray.seq;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+
+/**
+ * Aho-Corasick automaton finding any of many patterns in one pass over a text. A pattern is a literal,
+ * or a glob where {@code *} matches any run and {@code ?} any single char, found anywhere in the text.
+ * A glob is looked up by its longest literal part and then checked around each occurrence of it.
+ * Char sequences are matched by chars and {@link ByteSlice}s by the UTF-8 bytes of the patterns, where
+ * {@code ?} stands for one byte, reporting positions in chars or bytes respectively.
+ *
+ * @author wolray
+ */
+public class MultiMatcher {
+    final String[] patterns;
+    final boolean[] globs;
+    final int[] keyOffsets;
+    final int[] keyLengths;
+    final String[] byteGlobs;
+    final int[] byteKeyOffsets;
+    final int[] byteKeyLengths;
+    final Automaton chars;
+    final Automaton bytes;
+
+    MultiMatcher(String[] patterns, boolean glob) {
+        int n = patterns.length;
+        this.patterns = patterns.clone();
+        globs = new boolean[n];
+        keyOffsets = new int[n];
+        keyLengths = new int[n];
+        byteGlobs = new String[n];
+        byteKeyOffsets = new int[n];
+        byteKeyLengths = new int[n];
+        int[][] charKeys = new int[n][];
+        int[][] byteKeys = new int[n][];
+        for (int i = 0; i < n; i++) {
+            String s = patterns[i];
+            int from = 0, to = glob ? 0 : s.length();
+            if (glob) {
+                for (int j = 0, start = 0; j <= s.length(); j++) {
+                    if (j == s.length() || s.charAt(j) == '*' || s.charAt(j) == '?') {
+                        if (j - start > to - from) {
+                            from = start;
+                            to = j;
+                        }
+                        start = j + 1;
+                    }
+                }
+                globs[i] = to - from < s.length();
+            }
+            if (from == to) {
+                throw new IllegalArgumentException("pattern without literal: " + s);
+            }
+            String key = s.substring(from, to);
+            keyOffsets[i] = from;
+            keyLengths[i] = to - from;
+            charKeys[i] = key.chars().toArray();
+            byte[] prefix = s.substring(0, from).getBytes(StandardCharsets.UTF_8);
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            byteGlobs[i] = new String(s.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+            byteKeyOffsets[i] = prefix.length;
+            byteKeyLengths[i] = keyBytes.length;
+            byteKeys[i] = new int[keyBytes.length];
+            for (int j = 0; j < keyBytes.length; j++) {
+                byteKeys[i][j] = keyBytes[j] & 0xFF;
+            }
+        }
+        chars = new Automaton(charKeys);
+        bytes = new Automaton(byteKeys);
+    }
+
+    public static MultiMatcher of(String... literals) {
+        return new MultiMatcher(literals, false);
+    }
+
+    public static MultiMatcher of(Iterable<String> literals) {
+        return of(Seq.of(literals).toObjArray(String[]::new));
+    }
+
+    public static MultiMatcher ofGlobs(String... globs) {
+        return new MultiMatcher(globs, true);
+    }
+
+    public boolean containsAny(CharSequence s) {
+        return until(s, m -> true);
+    }
+
+    public boolean containsAny(ByteSlice s) {
+        return until(s, m -> true);
+    }
+
+    public Seq<Match> matchAll(CharSequence s) {
+        return p -> until(s, p);
+    }
+
+    public Seq<Match> matchAll(ByteSlice s) {
+        return p -> until(s, p);
+    }
+
+    public String pattern(int i) {
+        return patterns[i];
+    }
+
+    public int size() {
+        return patterns.length;
+    }
+
+    /**
+     * Passes every match to {@code stop}, in the order their literal parts end, until it returns true.
+     */
+    public boolean until(CharSequence s, Predicate<Match> stop) {
+        if (s instanceof ByteSlice) {
+            return until((ByteSlice)s, stop);
+        }
+        Automaton a = chars;
+        for (int i = 0, n = s.length(), state = 0; i < n; i++) {
+            state = a.next(state, s.charAt(i));
+            for (int id : a.outputs[state]) {
+                int start = i + 1 - keyLengths[id];
+                if (!globs[id]) {
+                    if (stop.test(new Match(id, start, i + 1))) {
+                        return true;
+                    }
+                    continue;
+                }
+                String g = patterns[id];
+                int left = glob(g, keyOffsets[id] - 1, -1, s.length(), s::charAt, start - 1);
+                int right = left < -1 ? -1 : glob(g, keyOffsets[id] + keyLengths[id], 1, n, s::charAt, i + 1);
+                if (right >= 0 && stop.test(new Match(id, left + 1, right))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean until(ByteSlice s, Predicate<Match> stop) {
+        Automaton a = bytes;
+        ByteBuffer buf = s.buffer;
+        int base = s.offset, n = s.length;
+        IntUnaryOperator at = i -> buf.get(base + i) & 0xFF;
+        for (int i = 0, state = 0; i < n; i++) {
+            state = a.next(state, at.applyAsInt(i));
+            for (int id : a.outputs[state]) {
+                int start = i + 1 - byteKeyLengths[id];
+                if (!globs[id]) {
+                    if (stop.test(new Match(id, start, i + 1))) {
+                        return true;
+                    }
+                    continue;
+                }
+                String g = byteGlobs[id];
+                int left = glob(g, byteKeyOffsets[id] - 1, -1, n, at, start - 1);
+                int right = left < -1 ? -1 : glob(g, byteKeyOffsets[id] + byteKeyLengths[id], 1, n, at, i + 1);
+                if (right >= 0 && stop.test(new Match(id, left + 1, right))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches the glob from {@code g} stepping by {@code dir} against the text from {@code t}, with the
+     * far end of the glob left open. Returns where the shortest match stops, or -2 if there is none.
+     */
+    static int glob(String glob, int g, int dir, int n, IntUnaryOperator text, int t) {
+        int end = dir > 0 ? glob.length() : -1;
+        int starG = -2, starT = 0;
+        while (g != end) {
+            char gc = glob.charAt(g);
+            if (gc == '*') {
+                starG = g;
+                g += dir;
+                starT = t;
+                continue;
+            }
+            if (t >= 0 && t < n && (gc == '?' || gc == text.applyAsInt(t))) {
+                g += dir;
+                t += dir;
+                continue;
+            }
+            if (starG == -2) {
+                return -2;
+            }
+            starT += dir;
+            if (starT < 0 || starT >= n) {
+                return -2;
+            }
+            g = starG + dir;
+            t = starT;
+        }
+        return t;
+    }
+
+    public static class Match {
+        public final int pattern;
+        public final int start;
+        public final int end;
+
+        public Match(int pattern, int start, int end) {
+            this.pattern = pattern;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Match)) {
+                return false;
+            }
+            Match m = (Match)o;
+            return pattern == m.pattern && start == m.start && end == m.end;
+        }
+
+        @Override
+        public int hashCode() {
+            return (pattern * 31 + start) * 31 + end;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("(%d,%d,%d)", pattern, start, end);
+        }
+    }
+
+    /**
+     * Full transition table over the symbols used by the keys, with every other symbol in class 0.
+     */
+    static class Automaton {
+        static final int[] NONE = {};
+
+        final int[] classes;
+        final int width;
+        final int[] delta;
+        final int[][] outputs;
+
+        Automaton(int[][] keys) {
+            int max = 0;
+            for (int[] key : keys) {
+                for (int c : key) {
+                    max = Math.max(max, c);
+                }
+            }
+            classes = new int[max + 1];
+            int width = 1;
+            for (int[] key : keys) {
+                for (int c : key) {
+                    if (classes[c] == 0) {
+                        classes[c] = width++;
+                    }
+                }
+            }
+            this.width = width;
+            int[] goTo = new int[width * 16];
+            Arrays.fill(goTo, -1);
+            int[][] out = new int[16][];
+            int states = 1;
+            for (int id = 0; id < keys.length; id++) {
+                int s = 0;
+                for (int c : keys[id]) {
+                    int k = s * width + classes[c];
+                    if (goTo[k] < 0) {
+                        if ((states + 1) * width > goTo.length) {
+                            int old = goTo.length;
+                            goTo = Arrays.copyOf(goTo, old << 1);
+                            Arrays.fill(goTo, old, goTo.length, -1);
+                            out = Arrays.copyOf(out, out.length << 1);
+                        }
+                        goTo[k] = states++;
+                    }
+                    s = goTo[k];
+                }
+                out[s] = append(out[s], id);
+            }
+            delta = Arrays.copyOf(goTo, states * width);
+            outputs = new int[states][];
+            int[] fail = new int[states];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            outputs[0] = NONE;
+            for (int c = 0; c < width; c++) {
+                if (delta[c] < 0) {
+                    delta[c] = 0;
+                } else if (delta[c] > 0) {
+                    queue.add(delta[c]);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int s = queue.poll();
+                int[] own = out[s] != null ? out[s] : NONE;
+                int[] inherited = outputs[fail[s]];
+                outputs[s] = inherited.length == 0 ? own : concat(own, inherited);
+                for (int c = 0; c < width; c++) {
+                    int k = s * width + c;
+                    int f = delta[fail[s] * width + c];
+                    if (delta[k] < 0) {
+                        delta[k] = f;
+                    } else {
+                        fail[delta[k]] = f;
+                        queue.add(delta[k]);
+                    }
+                }
+            }
+        }
+
+        static int[] append(int[] a, int id) {
+            if (a == null) {
+                return new int[]{id};
+            }
+            int[] res = Arrays.copyOf(a, a.length + 1);
+            res[a.length] = id;
+            return res;
+        }
+
+        static int[] concat(int[] a, int[] b) {
+            int[] res = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, res, a.length, b.length);
+            return res;
+        }
+
+        int next(int state, int c) {
+            return delta[state * width + (c < classes.length ? classes[c] : 0)];
+        }
+    }
+}
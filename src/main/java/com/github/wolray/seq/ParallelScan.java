@@ -0,0 +1,178 @@
+package com.github.wolray.seq;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CountedCompleter;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Visits the nodes of a {@link SeqExpand} tree on a fork-join pool. Each task walks its part of the
+ * tree depth first, and after every {@code threshold} nodes forks the older half of its pending nodes,
+ * which are the roots of the largest unvisited subtrees, as a new task, as long as the worker has few
+ * tasks queued that nobody has stolen yet. Tasks never wait for their forks: as counted completers,
+ * the last one of a family to finish merges the results, so no stack builds up. Nodes are visited in no
+ * particular order, so predicates and reducers see them from several threads, and once any predicate
+ * returns true every task stops at its next node.
+ *
+ * @author wolray
+ */
+public class ParallelScan<T> {
+    static final int MAX_SURPLUS = 3;
+
+    final SeqExpand<T> expand;
+    final ForkJoinPool pool;
+    final int threshold;
+
+    ParallelScan(SeqExpand<T> expand, ForkJoinPool pool, int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("non-positive size");
+        }
+        this.expand = expand;
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    public <V> V reduce(T root, Reducer.Mergeable<T, V> reducer) {
+        return run(root, reducer::get, (w, t) -> {
+            w.accept(t);
+            return false;
+        }, Reducer.MergeableWorker::merge).result();
+    }
+
+    /**
+     * Reduces the nodes of every task with its own worker and combines the results.
+     */
+    public <V> V reduce(T root, Reducer<T, V> reducer, BinaryOperator<V> combiner) {
+        return run(root, () -> new Partial<>(reducer.get(), combiner), (p, t) -> {
+            p.worker.accept(t);
+            return false;
+        }, Partial::merge).result();
+    }
+
+    /**
+     * Whether {@code stop} returned true for some node, which ends the whole scan.
+     */
+    public boolean until(T root, Predicate<T> stop) {
+        Run<Boolean> run = new Run<>(() -> false, (b, t) -> stop.test(t), (a, b) -> {});
+        if (root != null) {
+            pool.invoke(new Task<>(null, run, frontier(root)));
+        }
+        return run.stopped;
+    }
+
+    <W> W run(T root, Supplier<W> newWorker, BiPredicate<W, T> visit, BiConsumer<W, W> merge) {
+        Run<W> run = new Run<>(newWorker, visit, merge);
+        return root != null ? pool.invoke(new Task<>(null, run, frontier(root))) : newWorker.get();
+    }
+
+    ArrayDeque<T> frontier(T root) {
+        ArrayDeque<T> frontier = new ArrayDeque<>();
+        frontier.add(root);
+        return frontier;
+    }
+
+    /**
+     * Result of one task's own worker combined with the results of its forks as they complete.
+     */
+    static class Partial<T, V> {
+        final Reducer.Worker<T, V> worker;
+        final BinaryOperator<V> combiner;
+        V merged;
+        boolean hasMerged;
+
+        Partial(Reducer.Worker<T, V> worker, BinaryOperator<V> combiner) {
+            this.worker = worker;
+            this.combiner = combiner;
+        }
+
+        void merge(Partial<T, V> other) {
+            V v = other.result();
+            merged = hasMerged ? combiner.apply(merged, v) : v;
+            hasMerged = true;
+        }
+
+        V result() {
+            V v = worker.result();
+            return hasMerged ? combiner.apply(v, merged) : v;
+        }
+    }
+
+    class Run<W> {
+        final Supplier<W> newWorker;
+        final BiPredicate<W, T> visit;
+        final BiConsumer<W, W> merge;
+        volatile boolean stopped;
+
+        Run(Supplier<W> newWorker, BiPredicate<W, T> visit, BiConsumer<W, W> merge) {
+            this.newWorker = newWorker;
+            this.visit = visit;
+            this.merge = merge;
+        }
+    }
+
+    class Task<W> extends CountedCompleter<W> {
+        private static final long serialVersionUID = 1L;
+
+        final Run<W> run;
+        final ArrayDeque<T> frontier;
+        final SeqList<Task<W>> forks = new SeqList<>();
+        W worker;
+
+        Task(Task<W> parent, Run<W> run, ArrayDeque<T> frontier) {
+            super(parent);
+            this.run = run;
+            this.frontier = frontier;
+        }
+
+        @Override
+        public void compute() {
+            worker = run.newWorker.get();
+            SeqList<T> sub = new SeqList<>();
+            int count = 0;
+            while (!frontier.isEmpty() && !run.stopped) {
+                T t = frontier.pollLast();
+                if (run.visit.test(worker, t)) {
+                    run.stopped = true;
+                    break;
+                }
+                sub.clear();
+                expand.apply(t).consume(n -> {
+                    if (n != null) {
+                        sub.add(n);
+                    }
+                });
+                for (int i = sub.size() - 1; i >= 0; i--) {
+                    frontier.addLast(sub.get(i));
+                }
+                if (++count >= threshold && frontier.size() > 1 && getSurplusQueuedTaskCount() < MAX_SURPLUS) {
+                    ArrayDeque<T> half = new ArrayDeque<>();
+                    for (int i = frontier.size() >> 1; i > 0; i--) {
+                        half.addLast(frontier.pollFirst());
+                    }
+                    Task<W> task = new Task<>(this, run, half);
+                    forks.add(task);
+                    addToPendingCount(1);
+                    task.fork();
+                    count = 0;
+                }
+            }
+            tryComplete();
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            for (Task<W> task : forks) {
+                run.merge.accept(worker, task.worker);
+            }
+        }
+
+        @Override
+        public W getRawResult() {
+            return worker;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Input stream reading up to {@code depth} blocks ahead of its consumer on an {@link Async}. The
+ * read-ahead task never blocks: it stops when enough blocks are queued and is resubmitted as the
+ * consumer takes them, and consumed block arrays are recycled. Closing does not wait for a block being
+ * read: the underlying stream is closed by whichever of the two finishes last, and a read blocked in
+ * another thread fails at once.
+ *
+ * @author wolray
+ */
+public class PrefetchInputStream extends InputStream {
+    static final Block EOF = new Block(null, -1, null);
+    static final Block CLOSED = new Block(null, -1, null);
+
+    final InputStream in;
+    final Async async;
+    final int blockSize;
+    final int depth;
+    final LinkedBlockingQueue<Block> filled = new LinkedBlockingQueue<>();
+    final ConcurrentLinkedQueue<byte[]> free = new ConcurrentLinkedQueue<>();
+    final AtomicBoolean reading = new AtomicBoolean();
+    volatile boolean done;
+    volatile boolean closed;
+    Block cur;
+    int pos;
+
+    public PrefetchInputStream(InputStream in, Async async, int blockSize, int depth) {
+        if (blockSize <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("non-positive size");
+        }
+        this.in = in;
+        this.async = async;
+        this.blockSize = blockSize;
+        this.depth = depth;
+        schedule();
+    }
+
+    @Override
+    public int available() {
+        return cur != null && cur.length > 0 ? cur.length - pos : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        done = true;
+        closed = true;
+        filled.add(CLOSED);
+        closeIn();
+    }
+
+    void closeIn() throws IOException {
+        if (reading.compareAndSet(false, true)) {
+            in.close();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensure()) {
+            return -1;
+        }
+        return cur.bytes[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensure()) {
+            return -1;
+        }
+        int n = Math.min(len, cur.length - pos);
+        System.arraycopy(cur.bytes, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    boolean ensure() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        if (cur == EOF) {
+            return false;
+        }
+        if (cur != null && pos < cur.length) {
+            return true;
+        }
+        if (cur != null) {
+            free.add(cur.bytes);
+        }
+        Block[] taken = {null};
+        Async.apply(() -> taken[0] = filled.take());
+        Block block = taken[0];
+        if (block == CLOSED) {
+            throw new IOException("stream closed");
+        }
+        if (block.error != null) {
+            cur = EOF;
+            throw block.error instanceof IOException ? (IOException)block.error : new IOException(block.error);
+        }
+        cur = block;
+        pos = 0;
+        schedule();
+        return cur != EOF;
+    }
+
+    void schedule() {
+        if (!done && filled.size() < depth && reading.compareAndSet(false, true)) {
+            async.submit(this::fill);
+        }
+    }
+
+    void fill() {
+        try {
+            while (!done && filled.size() < depth) {
+                byte[] bytes = free.poll();
+                if (bytes == null) {
+                    bytes = new byte[blockSize];
+                }
+                int n = ReadBuffer.readFully(in, bytes, 0, blockSize);
+                if (n > 0) {
+                    filled.add(new Block(bytes, n, null));
+                }
+                if (n < blockSize) {
+                    done = true;
+                    filled.add(EOF);
+                }
+            }
+        } catch (Throwable e) {
+            if (!done) {
+                done = true;
+                filled.add(new Block(null, -1, e));
+            }
+        } finally {
+            reading.set(false);
+        }
+        if (closed) {
+            try {
+                closeIn();
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+        schedule();
+    }
+
+    static class Block {
+        final byte[] bytes;
+        final int length;
+        final Throwable error;
+
+        Block(byte[] bytes, int length, Throwable error) {
+            this.bytes = bytes;
+            this.length = length;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.wolray.seq;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns a push-based {@link Seq} into an iterator by running it on a daemon producer thread,
+ * which hands elements over in batches through a bounded queue. Call {@link #close()} when
+ * abandoning the iterator before its end so that the producer stops. The producer only holds the
+ * iterator weakly, so one that is dropped without closing stops its producer once collected.
+ *
+ * @author wolray
+ */
+public class PushPuller<T> extends Puller<T> implements AutoCloseable {
+    private static final Object[] END = {};
+
+    private final Seq<T> seq;
+    private final int batchSize;
+    private final Handoff handoff;
+    private Thread thread;
+    private Object[] batch = {};
+    private int pos;
+
+    public PushPuller(Seq<T> seq, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("non-positive size");
+        }
+        this.seq = seq;
+        this.batchSize = batchSize;
+        handoff = new Handoff(new WeakReference<>(this));
+    }
+
+    public static void close(Object o) {
+        if (o instanceof PushPuller) {
+            ((PushPuller<?>)o).close();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean hasNext() {
+        if (pos < batch.length) {
+            return set((T)batch[pos++]);
+        }
+        if (batch == END) {
+            return false;
+        }
+        if (thread == null) {
+            Seq<T> seq = this.seq;
+            int batchSize = this.batchSize;
+            Handoff handoff = this.handoff;
+            thread = new Thread(() -> produce(seq, batchSize, handoff), "seq-puller");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        batch = take();
+        pos = 0;
+        if (batch == END) {
+            Throwable e = handoff.error;
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException)e;
+            }
+            if (e instanceof Error) {
+                throw (Error)e;
+            }
+            if (e != null) {
+                throw new IllegalStateException(e);
+            }
+            return false;
+        }
+        return set((T)batch[pos++]);
+    }
+
+    @Override
+    public void close() {
+        handoff.closed = true;
+        handoff.queue.clear();
+        batch = END;
+    }
+
+    private static <T> void produce(Seq<T> seq, int batchSize, Handoff handoff) {
+        Object[] buffer = new Object[batchSize];
+        int[] n = {0};
+        try {
+            seq.until(t -> {
+                buffer[n[0]++] = t;
+                if (n[0] == batchSize) {
+                    handoff.put(buffer.clone());
+                    n[0] = 0;
+                }
+                return handoff.closed;
+            });
+            if (n[0] > 0) {
+                handoff.put(Arrays.copyOf(buffer, n[0]));
+            }
+        } catch (Throwable e) {
+            handoff.error = e;
+        }
+        handoff.put(END);
+    }
+
+    private Object[] take() {
+        try {
+            return handoff.queue.take();
+        } catch (InterruptedException e) {
+            close();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * State shared with the producer thread, which must not reach the puller itself.
+     */
+    private static class Handoff {
+        final BlockingQueue<Object[]> queue = new ArrayBlockingQueue<>(2);
+        volatile boolean closed;
+        volatile Throwable error;
+        final WeakReference<?> owner;
+
+        Handoff(WeakReference<?> owner) {
+            this.owner = owner;
+        }
+
+        void put(Object[] a) {
+            try {
+                while (!closed) {
+                    if (queue.offer(a, 100, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                    if (owner.get() == null) {
+                        closed = true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                closed = true;
+            }
+        }
+    }
+}
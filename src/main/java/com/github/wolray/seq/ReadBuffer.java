@@ -0,0 +1,74 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Whole-stream reads that copy each byte once into the result: straight into an array of the size
+ * announced by {@link InputStream#available()}, otherwise through a scratch buffer kept per thread. Only
+ * scratch buffers up to {@link #MAX_POOLED} bytes are kept, so a thread never pins a large one.
+ *
+ * @author wolray
+ */
+public class ReadBuffer {
+    static final int MAX_POOLED = 1 << 18;
+    static final ThreadLocal<byte[]> POOL = new ThreadLocal<>();
+
+    public static byte[] readAll(InputStream is, int bufferSize) throws IOException {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("non-positive size");
+        }
+        int hint = is.available();
+        if (hint > 0) {
+            byte[] res = new byte[hint];
+            int n = readFully(is, res, 0, hint);
+            if (n < hint) {
+                return Arrays.copyOf(res, n);
+            }
+            int b = is.read();
+            if (b < 0) {
+                return res;
+            }
+            byte[] buf = take(hint + 1 + bufferSize);
+            System.arraycopy(res, 0, buf, 0, hint);
+            buf[hint] = (byte)b;
+            return readRest(is, buf, hint + 1);
+        }
+        return readRest(is, take(bufferSize), 0);
+    }
+
+    static int readFully(InputStream is, byte[] bytes, int offset, int length) throws IOException {
+        int n = 0, r;
+        while (n < length && (r = is.read(bytes, offset + n, length - n)) >= 0) {
+            n += r;
+        }
+        return n;
+    }
+
+    static byte[] readRest(InputStream is, byte[] buf, int n) throws IOException {
+        try {
+            int r;
+            while ((r = is.read(buf, n, buf.length - n)) >= 0) {
+                n += r;
+                if (n == buf.length) {
+                    if (n == Integer.MAX_VALUE - 8) {
+                        throw new OutOfMemoryError("stream too large");
+                    }
+                    buf = Arrays.copyOf(buf, (int)Math.min((long)n << 1, Integer.MAX_VALUE - 8));
+                }
+            }
+            return Arrays.copyOf(buf, n);
+        } finally {
+            if (buf.length <= MAX_POOLED) {
+                POOL.set(buf);
+            }
+        }
+    }
+
+    static byte[] take(int minSize) {
+        byte[] buf = POOL.get();
+        POOL.remove();
+        return buf != null && buf.length >= minSize ? buf : new byte[Math.max(minSize, 8192)];
+    }
+}
@@ -70,6 +70,14 @@ public interface Reducer<T, V> {
         };
     }
 
+    static <T> Reducer<T, IntIntMap> countByInt(ToIntFunction<T> toKey) {
+        return of(IntIntMap::new, (m, t) -> m.add(toKey.applyAsInt(t), 1));
+    }
+
+    static <T> Reducer<T, LongLongMap> countByLong(ToLongFunction<T> toKey) {
+        return of(LongLongMap::new, (m, t) -> m.add(toKey.applyAsLong(t), 1));
+    }
+
     static <T> Reducer<T, Integer> countNot(Predicate<T> predicate) {
         return count(predicate.negate());
     }
@@ -180,6 +188,46 @@ public interface Reducer<T, V> {
         };
     }
 
+    static <T, V> Reducer<T, IntObjSeqMap<V>> groupByInt(ToIntFunction<T> toKey, Reducer<T, V> reducer) {
+        return () -> new Worker<T, IntObjSeqMap<V>>() {
+            final IntObjSeqMap<Worker<T, V>> map = new IntObjSeqMap<>();
+
+            @Override
+            public void accept(T t) {
+                map.getOrCompute(toKey.applyAsInt(t), reducer::get).accept(t);
+            }
+
+            @Override
+            public IntObjSeqMap<V> result() {
+                return map.mapValues(Worker::result);
+            }
+        };
+    }
+
+    static <T, V> Reducer<T, LongObjSeqMap<V>> groupByLong(ToLongFunction<T> toKey, Reducer<T, V> reducer) {
+        return () -> new Worker<T, LongObjSeqMap<V>>() {
+            final LongObjSeqMap<Worker<T, V>> map = new LongObjSeqMap<>();
+
+            @Override
+            public void accept(T t) {
+                map.getOrCompute(toKey.applyAsLong(t), reducer::get).accept(t);
+            }
+
+            @Override
+            public LongObjSeqMap<V> result() {
+                return map.mapValues(Worker::result);
+            }
+        };
+    }
+
+    static <T, K, V> Reducer<T, SeqMap<K, V>> groupByParallel(Function<T, K> toKey, Reducer<T, V> reducer, Async async) {
+        return groupByParallel(toKey, reducer, async, Runtime.getRuntime().availableProcessors(), false);
+    }
+
+    static <T, K, V> Reducer<T, SeqMap<K, V>> groupByParallel(Function<T, K> toKey, Reducer<T, V> reducer, Async async, int shards, boolean keepOrder) {
+        return () -> new ShardedGroupBy<>(toKey, reducer, async, shards, keepOrder);
+    }
+
     static Reducer<String, String> join(String sep) {
         return () -> new Worker<String, String>() {
             final StringJoiner joiner = new StringJoiner(sep);
@@ -549,6 +597,14 @@ public interface Reducer<T, V> {
         return then(toList(), Collections::reverse);
     }
 
+    static <T> Mergeable<T, SeqList<T>> sample(int k, Random random) {
+        return () -> new Sampler<>(k, random);
+    }
+
+    static <T> Mergeable<T, SeqList<T>> sample(int k, ToDoubleFunction<T> weightFunction, Random random) {
+        return () -> new Sampler.Weighted<>(k, weightFunction, random);
+    }
+
     static <T> Reducer<T, SeqList<T>> sort() {
         return sort((Comparator<T>)null);
     }
@@ -573,6 +629,14 @@ public interface Reducer<T, V> {
         return sort(Comparator.comparing(function).reversed());
     }
 
+    static <T, K> Mergeable<T, SeqMap<K, SeqList<T>>> stratifiedSample(Function<T, K> toKey, int kPerStratum) {
+        return stratifiedSample(toKey, kPerStratum, new Random());
+    }
+
+    static <T, K> Mergeable<T, SeqMap<K, SeqList<T>>> stratifiedSample(Function<T, K> toKey, int kPerStratum, Random random) {
+        return () -> new Sampler.Stratified<>(toKey, kPerStratum, random);
+    }
+
     static Reducer<Double, Double> sum() {
         return () -> new Worker<Double, Double>() {
             double s = 0;
@@ -723,6 +787,14 @@ public interface Reducer<T, V> {
         return of(mapSupplier, (m, t) -> m.put(toKey.apply(t), t));
     }
 
+    static <T> Reducer<T, IntObjSeqMap<T>> toMapByInt(ToIntFunction<T> toKey) {
+        return of(IntObjSeqMap::new, (m, t) -> m.put(toKey.applyAsInt(t), t));
+    }
+
+    static <T> Reducer<T, LongObjSeqMap<T>> toMapByLong(ToLongFunction<T> toKey) {
+        return of(LongObjSeqMap::new, (m, t) -> m.put(toKey.applyAsLong(t), t));
+    }
+
     static <T, V> Reducer<T, SeqMap<T, V>> toMapWith(Function<T, V> toValue) {
         return toMapWith(SeqMap::new, toValue);
     }
@@ -739,6 +811,15 @@ public interface Reducer<T, V> {
         return of(() -> new SeqSet<>(initialCapacity), Set::add);
     }
 
+    interface Mergeable<T, V> extends Reducer<T, V> {
+        @Override
+        MergeableWorker<T, V> get();
+    }
+
+    interface MergeableWorker<T, V> extends Worker<T, V> {
+        void merge(MergeableWorker<T, V> other);
+    }
+
     interface Worker<T, V> {
         void accept(T t);
         V result();
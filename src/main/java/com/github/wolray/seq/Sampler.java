@@ -0,0 +1,188 @@
+package com.github.wolray.seq;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Reservoir sampler based on Algorithm L. Every kept item carries a random key and the reservoir
+ * holds the k smallest keys, so two samplers over disjoint shards merge into an exact uniform sample.
+ *
+ * @author wolray
+ */
+public class Sampler<T> implements Reducer.MergeableWorker<T, SeqList<T>> {
+    final int k;
+    final Random random;
+    final PriorityQueue<DoublePair<T>> heap;
+    long count, next;
+
+    public Sampler(int k, Random random) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("non-positive size");
+        }
+        this.k = k;
+        this.random = random;
+        heap = new PriorityQueue<>(k, Comparator.comparingDouble((DoublePair<T> p) -> p.doubleVal).reversed());
+    }
+
+    @Override
+    public void accept(T t) {
+        count++;
+        if (heap.size() < k) {
+            heap.add(new DoublePair<>(random.nextDouble(), t));
+            if (heap.size() == k) {
+                skip();
+            }
+        } else if (count == next) {
+            DoublePair<T> top = heap.poll();
+            top.doubleVal *= random.nextDouble();
+            top.it = t;
+            heap.add(top);
+            skip();
+        }
+    }
+
+    @Override
+    public SeqList<T> result() {
+        SeqList<T> list = new SeqList<>(heap.size());
+        heap.forEach(p -> list.add(p.it));
+        return list;
+    }
+
+    @Override
+    public void merge(Reducer.MergeableWorker<T, SeqList<T>> other) {
+        Sampler<T> that = (Sampler<T>)other;
+        for (DoublePair<T> p : that.heap) {
+            if (heap.size() < k) {
+                heap.add(new DoublePair<>(p.doubleVal, p.it));
+            } else if (p.doubleVal < heap.peek().doubleVal) {
+                replaceTop(heap, p);
+            }
+        }
+        count += that.count;
+        if (heap.size() == k) {
+            skip();
+        }
+    }
+
+    private void skip() {
+        double w = heap.peek().doubleVal;
+        next = count + (long)Math.floor(Math.log(uniform(random)) / Math.log1p(-w)) + 1;
+    }
+
+    /**
+     * Overwrites the evicted top with the entry of another sampler, which keeps mutating its own pairs.
+     */
+    static <T> void replaceTop(PriorityQueue<DoublePair<T>> heap, DoublePair<T> p) {
+        DoublePair<T> top = heap.poll();
+        top.doubleVal = p.doubleVal;
+        top.it = p.it;
+        heap.add(top);
+    }
+
+    static double uniform(Random random) {
+        double u;
+        do {
+            u = random.nextDouble();
+        } while (u == 0);
+        return u;
+    }
+
+    /**
+     * Weighted reservoir sampler based on A-ExpJ, keeping the k largest keys {@code log(u) / weight}.
+     */
+    public static class Weighted<T> implements Reducer.MergeableWorker<T, SeqList<T>> {
+        final int k;
+        final ToDoubleFunction<T> weightFunction;
+        final Random random;
+        final PriorityQueue<DoublePair<T>> heap;
+        double rest;
+
+        public Weighted(int k, ToDoubleFunction<T> weightFunction, Random random) {
+            if (k <= 0) {
+                throw new IllegalArgumentException("non-positive size");
+            }
+            this.k = k;
+            this.weightFunction = weightFunction;
+            this.random = random;
+            heap = new PriorityQueue<>(k, Comparator.comparingDouble(p -> p.doubleVal));
+        }
+
+        @Override
+        public void accept(T t) {
+            double wt = weightFunction.applyAsDouble(t);
+            if (wt <= 0) {
+                return;
+            }
+            if (heap.size() < k) {
+                heap.add(new DoublePair<>(Math.log(uniform(random)) / wt, t));
+                if (heap.size() == k) {
+                    jump();
+                }
+            } else if ((rest -= wt) <= 0) {
+                DoublePair<T> top = heap.poll();
+                double tw = Math.exp(top.doubleVal * wt);
+                top.doubleVal = Math.log(tw + (1 - tw) * uniform(random)) / wt;
+                top.it = t;
+                heap.add(top);
+                jump();
+            }
+        }
+
+        @Override
+        public SeqList<T> result() {
+            SeqList<T> list = new SeqList<>(heap.size());
+            heap.forEach(p -> list.add(p.it));
+            return list;
+        }
+
+        @Override
+        public void merge(Reducer.MergeableWorker<T, SeqList<T>> other) {
+            for (DoublePair<T> p : ((Weighted<T>)other).heap) {
+                if (heap.size() < k) {
+                    heap.add(new DoublePair<>(p.doubleVal, p.it));
+                } else if (p.doubleVal > heap.peek().doubleVal) {
+                    replaceTop(heap, p);
+                }
+            }
+            if (heap.size() == k) {
+                jump();
+            }
+        }
+
+        private void jump() {
+            rest = Math.log(uniform(random)) / heap.peek().doubleVal;
+        }
+    }
+
+    public static class Stratified<T, K> implements Reducer.MergeableWorker<T, SeqMap<K, SeqList<T>>> {
+        final Function<T, K> toKey;
+        final int k;
+        final Random random;
+        final SeqMap<K, Sampler<T>> map = new SeqMap<>();
+
+        public Stratified(Function<T, K> toKey, int k, Random random) {
+            this.toKey = toKey;
+            this.k = k;
+            this.random = random;
+        }
+
+        @Override
+        public void accept(T t) {
+            map.getOrCompute(toKey.apply(t), () -> new Sampler<>(k, random)).accept(t);
+        }
+
+        @Override
+        public SeqMap<K, SeqList<T>> result() {
+            return map.mapValues(Sampler::result);
+        }
+
+        @Override
+        public void merge(Reducer.MergeableWorker<T, SeqMap<K, SeqList<T>>> other) {
+            ((Stratified<T, K>)other).map.forEach((key, sampler) ->
+                map.getOrCompute(key, () -> new Sampler<>(k, random)).merge(sampler));
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.github.wolray.seq;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.function.*;
 import java.util.regex.Matcher;
@@ -65,6 +70,23 @@ public interface Seq<T> {
         };
     }
 
+    @SafeVarargs
+    static <T> ItrSeq<T> mergeSorted(Comparator<T> comparator, Seq<T>... sources) {
+        return SortedMerge.of(comparator, SortedMerge.sources(sources.length, i -> sources[i]));
+    }
+
+    @SafeVarargs
+    static <T, V> ItrSeq<V> mergeSorted(Comparator<T> comparator, Reducer<T, V> reducer, Seq<T>... sources) {
+        ItrSeq<T> sorted = SortedMerge.of(comparator, SortedMerge.sources(sources.length, i -> sources[i]));
+        return SortedMerge.reduceEquals(comparator, reducer, sorted);
+    }
+
+    @SafeVarargs
+    static <T> ItrSeq<T> mergeSortedDistinct(Comparator<T> comparator, Seq<T>... sources) {
+        ItrSeq<T> sorted = SortedMerge.of(comparator, SortedMerge.sources(sources.length, i -> sources[i]));
+        return SortedMerge.reduceEquals(comparator, Reducer.first(), sorted);
+    }
+
     static <T> ItrSeq<T> of(Iterable<T> iterable) {
         if (iterable instanceof ItrSeq) {
             return (ItrSeq<T>)iterable;
@@ -172,6 +194,10 @@ public interface Seq<T> {
         };
     }
 
+    static Seq<MultiMatcher.Match> matchAll(CharSequence s, MultiMatcher matcher) {
+        return matcher.matchAll(s);
+    }
+
     static Seq<Object> ofJson(Object node) {
         return Seq.ofTree(node, n -> p -> {
             if (n instanceof Iterable) {
@@ -191,6 +217,10 @@ public interface Seq<T> {
         });
     }
 
+    /**
+     * Depth first walk which pulls children one at a time when {@code sub} returns an {@link ItrSeq}, so
+     * that {@code take} or {@code first} stop early even on an endless fan-out.
+     */
     static <N> Seq<N> ofTree(N node, Function<N, Seq<N>> sub) {
         return SeqExpand.of(sub).toSeq(node);
     }
@@ -203,6 +233,10 @@ public interface Seq<T> {
         return p -> p.test(t);
     }
 
+    static FileWalker walkFiles(Path root, Async async, int maxDepth, BiPredicate<Path, BasicFileAttributes> filter) {
+        return new FileWalker(root, async, maxDepth, filter, true);
+    }
+
     default void consume(Consumer<T> consumer) {
         until(t -> {
             consumer.accept(t);
@@ -233,10 +267,35 @@ public interface Seq<T> {
         consume(System.out::println);
     }
 
+    /**
+     * Writes every element and a line break to the sink, which stays open.
+     */
+    default void writeLines(ByteSink sink) {
+        consume(t -> sink.writeLine(String.valueOf(t)));
+    }
+
     default BatchedSeq<T> toBatched() {
         return reduce(new BatchedSeq<>(), BatchedSeq::add);
     }
 
+    default <A extends Appendable> A joinTo(A appendable, String sep) {
+        return joinTo(appendable, sep, Object::toString);
+    }
+
+    default <A extends Appendable> A joinTo(A appendable, String sep, Function<T, String> function) {
+        consumeIndexed((i, t) -> {
+            try {
+                if (i > 0) {
+                    appendable.append(sep);
+                }
+                appendable.append(function.apply(t));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return appendable;
+    }
+
     default <C extends Collection<T>> C collectBy(IntFunction<C> constructor) {
         return reduce(constructor.apply(sizeOrDefault()), Collection::add);
     }
@@ -264,6 +323,15 @@ public interface Seq<T> {
         return toBatched();
     }
 
+    /**
+     * Lazy iterable whose iterators run this seq on a producer thread, see {@link PushPuller}. An
+     * iterator dropped before its end should be closed with {@link PushPuller#close(Object)}; one that is
+     * not only stops its producer after being garbage collected.
+     */
+    default ItrSeq<T> asIterable(int batchSize) {
+        return () -> new PushPuller<>(this, batchSize);
+    }
+
     default <E> Lazy<E> toLazy(Reducer<T, E> reducer) {
         return Lazy.of(() -> reduce(reducer));
     }
@@ -311,6 +379,33 @@ public interface Seq<T> {
         return reduce(Reducer.minBy(function));
     }
 
+    default Path writeBytes(Path path, Function<T, byte[]> function) {
+        try (ByteSink sink = ByteSink.of(path)) {
+            consume(t -> sink.write(function.apply(t)));
+        }
+        return path;
+    }
+
+    default Path writeLines(Path path) {
+        return writeLines(path, Charset.defaultCharset());
+    }
+
+    default Path writeLines(Path path, Charset charset) {
+        try (ByteSink sink = ByteSink.of(path, charset, ByteSink.Sync.NONE)) {
+            writeLines(sink);
+        }
+        return path;
+    }
+
+    default <E, K> Seq<T> antiJoin(Seq<E> other, Function<T, K> leftKey, Function<E, K> rightKey) {
+        return antiJoin(other, leftKey, rightKey, Integer.MAX_VALUE);
+    }
+
+    default <E, K> Seq<T> antiJoin(Seq<E> other, Function<T, K> leftKey, Function<E, K> rightKey, int maxBuildSize) {
+        HashJoin<T, E, K> join = new HashJoin<>(leftKey, rightKey, HashJoin.Mode.ANTI, maxBuildSize);
+        return p -> join.join(this, other, (t, e) -> p.test(t));
+    }
+
     default Seq<T> append(T t) {
         return p -> {
             until(p);
@@ -476,6 +571,10 @@ public interface Seq<T> {
         return p -> until(t -> predicate.test(t) && p.test(t));
     }
 
+    default Seq<T> filterContainsAny(Function<T, ? extends CharSequence> function, MultiMatcher matcher) {
+        return filter(t -> matcher.containsAny(function.apply(t)));
+    }
+
     default Seq<T> filterIn(Collection<T> collection) {
         return filter(collection::contains);
     }
@@ -568,6 +667,15 @@ public interface Seq<T> {
         });
     }
 
+    default <E, K> Seq<T> semiJoin(Seq<E> other, Function<T, K> leftKey, Function<E, K> rightKey) {
+        return semiJoin(other, leftKey, rightKey, Integer.MAX_VALUE);
+    }
+
+    default <E, K> Seq<T> semiJoin(Seq<E> other, Function<T, K> leftKey, Function<E, K> rightKey, int maxBuildSize) {
+        HashJoin<T, E, K> join = new HashJoin<>(leftKey, rightKey, HashJoin.Mode.SEMI, maxBuildSize);
+        return p -> join.join(this, other, (t, e) -> p.test(t));
+    }
+
     default <E extends Comparable<E>> Seq<T> sortCached(Function<T, E> function) {
         return map(t -> new Pair<>(t, function.apply(t))).sortBy(p -> p.second).map(p -> p.first);
     }
@@ -725,6 +833,28 @@ public interface Seq<T> {
         return zip(iterable).map(function);
     }
 
+    default <E, K> Seq2<T, E> joinBy(Seq<E> other, Function<T, K> leftKey, Function<E, K> rightKey) {
+        return joinBy(other, leftKey, rightKey, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The right side is held in memory up to {@code maxBuildSize} rows before spilling, so it should be the
+     * smaller input unless both are {@link SizedSeq}s, see {@link HashJoin}.
+     */
+    default <E, K> Seq2<T, E> joinBy(Seq<E> other, Function<T, K> leftKey, Function<E, K> rightKey, int maxBuildSize) {
+        HashJoin<T, E, K> join = new HashJoin<>(leftKey, rightKey, HashJoin.Mode.INNER, maxBuildSize);
+        return p -> join.join(this, other, p);
+    }
+
+    default <E, K> Seq2<T, E> leftJoin(Seq<E> other, Function<T, K> leftKey, Function<E, K> rightKey) {
+        return leftJoin(other, leftKey, rightKey, Integer.MAX_VALUE);
+    }
+
+    default <E, K> Seq2<T, E> leftJoin(Seq<E> other, Function<T, K> leftKey, Function<E, K> rightKey, int maxBuildSize) {
+        HashJoin<T, E, K> join = new HashJoin<>(leftKey, rightKey, HashJoin.Mode.LEFT, maxBuildSize);
+        return p -> join.join(this, other, p);
+    }
+
     default <K, V> Seq2<K, V> mapIf2(BiPredicate<BiPredicate<K, V>, T> predicate) {
         return p -> until(t -> predicate.test(p, t));
     }
@@ -811,6 +941,18 @@ public interface Seq<T> {
         return reduce(Reducer.groupBy(toKey, reducer));
     }
 
+    default <V> IntObjSeqMap<V> groupByInt(ToIntFunction<T> toKey, Reducer<T, V> reducer) {
+        return reduce(Reducer.groupByInt(toKey, reducer));
+    }
+
+    default <V> LongObjSeqMap<V> groupByLong(ToLongFunction<T> toKey, Reducer<T, V> reducer) {
+        return reduce(Reducer.groupByLong(toKey, reducer));
+    }
+
+    default <K, V> SeqMap<K, V> groupByParallel(Function<T, K> toKey, Reducer<T, V> reducer, Async async) {
+        return reduce(Reducer.groupByParallel(toKey, reducer, async));
+    }
+
     default <K, V> SeqMap<K, V> toMap(Function<T, K> toKey, Function<T, V> toValue) {
         return reduce(Reducer.toMap(() -> new SeqMap<>(sizeOrDefault()), toKey, toValue));
     }
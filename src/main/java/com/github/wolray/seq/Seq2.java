@@ -106,6 +106,63 @@ public interface Seq2<K, V> {
         return p -> seq.until(pair -> p.test(pair.first, pair.second));
     }
 
+    default <U> Seq2<K, Pair<SeqList<V>, SeqList<U>>> cogroup(Seq2<K, U> other, Comparator<K> comparator) {
+        return cogroup(other, comparator, false);
+    }
+
+    /**
+     * Both sides must be sorted by key. The other side is pulled through a {@link PushPuller}, which costs
+     * one thread per call.
+     */
+    default <U> Seq2<K, Pair<SeqList<V>, SeqList<U>>> cogroup(Seq2<K, U> other, Comparator<K> comparator, boolean validate) {
+        return p -> {
+            GroupCursor<K, U> right = new GroupCursor<>(other, comparator, validate);
+            try {
+                BiPredicate<K, SeqList<V>> flush = (k, vs) -> {
+                    while (right.hasNext() && comparator.compare(right.key, k) < 0) {
+                        K rk = right.key;
+                        if (p.test(rk, new Pair<>(new SeqList<>(), right.nextGroup()))) {
+                            return true;
+                        }
+                    }
+                    SeqList<U> us = right.hasNext() && comparator.compare(right.key, k) == 0 ? right.nextGroup() : new SeqList<>();
+                    return p.test(k, new Pair<>(vs, us));
+                };
+                Pair<K, SeqList<V>> cur = new Pair<>(null, null);
+                boolean stop = until((k, v) -> {
+                    if (cur.second != null) {
+                        int c = comparator.compare(cur.first, k);
+                        if (c == 0) {
+                            cur.second.add(v);
+                            return false;
+                        }
+                        if (validate && c > 0) {
+                            throw new IllegalStateException("unsorted input: " + cur.first + " > " + k);
+                        }
+                        if (flush.test(cur.first, cur.second)) {
+                            return true;
+                        }
+                    }
+                    cur.set(k, new SeqList<>());
+                    cur.second.add(v);
+                    return false;
+                });
+                if (stop || cur.second != null && flush.test(cur.first, cur.second)) {
+                    return true;
+                }
+                while (right.hasNext()) {
+                    K rk = right.key;
+                    if (p.test(rk, new Pair<>(new SeqList<>(), right.nextGroup()))) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                right.close();
+            }
+        };
+    }
+
     default Seq2<K, V> filter(BiPredicate<K, V> predicate) {
         return p -> until((k, v) -> predicate.test(k, v) && p.test(k, v));
     }
@@ -138,6 +195,49 @@ public interface Seq2<K, V> {
         return p -> until((k, v) -> p.test(k, function.apply(v)));
     }
 
+    default <U> Seq2<K, Pair<V, U>> mergeJoin(Seq2<K, U> other, Comparator<K> comparator) {
+        return mergeJoin(other, comparator, false);
+    }
+
+    /**
+     * Both sides must be sorted by key. The other side is pulled through a {@link PushPuller}, which costs
+     * one thread per call.
+     */
+    default <U> Seq2<K, Pair<V, U>> mergeJoin(Seq2<K, U> other, Comparator<K> comparator, boolean validate) {
+        return p -> {
+            GroupCursor<K, U> right = new GroupCursor<>(other, comparator, validate);
+            try {
+                return until(new BiPredicate<K, V>() {
+                    K last;
+                    SeqList<U> group;
+
+                    @Override
+                    public boolean test(K k, V v) {
+                        int c = group != null ? comparator.compare(last, k) : -1;
+                        if (c != 0) {
+                            if (validate && c > 0) {
+                                throw new IllegalStateException("unsorted input: " + last + " > " + k);
+                            }
+                            while (right.hasNext() && comparator.compare(right.key, k) < 0) {
+                                right.next();
+                            }
+                            last = k;
+                            group = right.hasNext() && comparator.compare(right.key, k) == 0 ? right.nextGroup() : new SeqList<>();
+                        }
+                        for (U u : group) {
+                            if (p.test(k, new Pair<>(v, u))) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    }
+                });
+            } finally {
+                right.close();
+            }
+        };
+    }
+
     default Seq2<K, V> onEach(BiConsumer<K, V> consumer) {
         return p -> until((k, v) -> {
             consumer.accept(k, v);
@@ -156,7 +256,13 @@ public interface Seq2<K, V> {
     default <T> SeqMap<K, T> groupBy(Reducer<V, T> reducer) {
         SeqMap<K, Reducer.Worker<V, T>> map = new SeqMap<>();
         consume((k, v) -> map.getOrCompute(k, reducer::get).accept(v));
-        return map.mapValues(Reducer.Worker::result);
+        return map.mapValuesInPlace(Reducer.Worker::result);
+    }
+
+    default CompactMap<K, V> toCompactMap() {
+        CompactMap<K, V> res = new CompactMap<>();
+        consume(res::put);
+        return res;
     }
 
     default SeqMap<K, V> toMap() {
@@ -1,7 +1,11 @@
 package com.github.wolray.seq;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -33,6 +37,10 @@ public interface SeqExpand<T> extends Function<T, Seq<T>> {
         return map;
     }
 
+    /**
+     * Depth first, pulling children lazily when they are {@link ItrSeq}s, see
+     * {@link #scan(Predicate, Object, int, int, Order)}.
+     */
     default Seq<T> toSeq(T node) {
         return p -> scan(p, node);
     }
@@ -41,6 +49,14 @@ public interface SeqExpand<T> extends Function<T, Seq<T>> {
         return p -> scan(p, node, maxDepth, 0);
     }
 
+    default Seq<T> toSeq(T node, Order order) {
+        return p -> scan(p, node, Integer.MAX_VALUE, 0, order);
+    }
+
+    default Seq<T> toSeq(T node, int maxDepth, Order order) {
+        return p -> scan(p, node, maxDepth, 0, order);
+    }
+
     default SeqExpand<T> filter(Predicate<T> predicate) {
         return t -> apply(t).filter(predicate);
     }
@@ -49,26 +65,121 @@ public interface SeqExpand<T> extends Function<T, Seq<T>> {
         return t -> apply(t).filter(predicate.negate());
     }
 
+    /**
+     * Scan of the tree on the pool, forking the older half of a task's pending nodes every
+     * {@code threshold} nodes it visits.
+     */
+    default ParallelScan<T> parallelScan(ForkJoinPool pool, int threshold) {
+        return new ParallelScan<>(this, pool, threshold);
+    }
+
     default SeqExpand<T> terminate(Predicate<T> predicate) {
         return t -> predicate.test(t) ? Seq.empty() : apply(t);
     }
 
     default boolean scan(BiPredicate<T, SeqList<T>> p, T node) {
-        SeqList<T> sub = apply(node).filterNotNull().toList();
-        return p.test(node, sub) || sub.until(n -> scan(p, n));
+        return scan(p, node, Order.DFS);
+    }
+
+    /**
+     * Visits every node with its children, keeping the frontier in a deque instead of on the call stack.
+     */
+    default boolean scan(BiPredicate<T, SeqList<T>> p, T node, Order order) {
+        ArrayDeque<T> frontier = new ArrayDeque<>();
+        boolean dfs = order == Order.DFS;
+        frontier.add(node);
+        while (!frontier.isEmpty()) {
+            T t = dfs ? frontier.pollLast() : frontier.pollFirst();
+            SeqList<T> sub = apply(t).filterNotNull().toList();
+            if (p.test(t, sub)) {
+                return true;
+            }
+            if (dfs) {
+                for (int i = sub.size() - 1; i >= 0; i--) {
+                    frontier.addLast(sub.get(i));
+                }
+            } else {
+                frontier.addAll(sub);
+            }
+        }
+        return false;
     }
 
     default boolean scan(Predicate<T> p, T node) {
-        return p.test(node) || apply(node).until(n -> n != null && scan(p, n));
+        return scan(p, node, Integer.MAX_VALUE, 0, Order.DFS);
     }
 
     default boolean scan(Predicate<T> p, T node, int maxDepth, int depth) {
+        return scan(p, node, maxDepth, depth, Order.DFS);
+    }
+
+    /**
+     * Visits nodes from {@code depth} down to {@code maxDepth} in the given order, keeping a deque of child
+     * iterators instead of recursing and, depth first, the depth of each pending iterator in a parallel array.
+     * Children given as an {@link ItrSeq} are pulled one at a time, so an
+     * endless fan-out still stops early; any other child seq is collected node by node before it is visited.
+     */
+    default boolean scan(Predicate<T> p, T node, int maxDepth, int depth, Order order) {
+        if (node == null) {
+            return p.test(null);
+        }
         if (p.test(node)) {
             return true;
         }
-        if (depth < maxDepth) {
-            return apply(node).until(n -> n != null && scan(p, n, maxDepth, depth + 1));
+        if (depth >= maxDepth) {
+            return false;
+        }
+        boolean dfs = order == Order.DFS;
+        ArrayDeque<Iterator<T>> frontier = new ArrayDeque<>();
+        int[] depths = push(new int[dfs ? 16 : 0], 0, depth + 1);
+        int level = 1;
+        frontier.add(iterator(apply(node)));
+        while (!frontier.isEmpty()) {
+            Iterator<T> iterator = dfs ? frontier.peekLast() : frontier.peekFirst();
+            if (!iterator.hasNext()) {
+                if (dfs) {
+                    frontier.pollLast();
+                } else {
+                    frontier.pollFirst();
+                    if (--level == 0) {
+                        depth++;
+                        level = frontier.size();
+                    }
+                }
+                continue;
+            }
+            T t = iterator.next();
+            if (t == null) {
+                continue;
+            }
+            if (p.test(t)) {
+                return true;
+            }
+            int d = dfs ? depths[frontier.size() - 1] : depth + 1;
+            if (d < maxDepth) {
+                depths = push(depths, frontier.size(), d + 1);
+                frontier.addLast(iterator(apply(t)));
+            }
         }
         return false;
     }
+
+    static <T> Iterator<T> iterator(Seq<T> seq) {
+        return seq instanceof ItrSeq ? ((ItrSeq<T>)seq).iterator() : seq.toList().iterator();
+    }
+
+    static int[] push(int[] depths, int i, int depth) {
+        if (depths.length == 0) {
+            return depths;
+        }
+        if (i == depths.length) {
+            depths = Arrays.copyOf(depths, i << 1);
+        }
+        depths[i] = depth;
+        return depths;
+    }
+
+    enum Order {
+        DFS, BFS
+    }
 }
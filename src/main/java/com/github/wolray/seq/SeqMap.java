@@ -33,6 +33,11 @@ public class SeqMap<K, V> extends LinkedHashMap<K, V> implements Seq2<K, V> {
         return Seq.of(values());
     }
 
+    @Override
+    public ItrSeq<Pair<K, V>> paired() {
+        return toEntries().map(e -> new Pair<>(e.getKey(), e.getValue()));
+    }
+
     @Override
     public SeqMap<K, V> cache() {
         return this;
@@ -96,4 +101,10 @@ public class SeqMap<K, V> extends LinkedHashMap<K, V> implements Seq2<K, V> {
     public V getOrCompute(K key, Supplier<? extends V> supplier) {
         return computeIfAbsent(key, k -> supplier.get());
     }
+
+    @SuppressWarnings("unchecked")
+    public <T> SeqMap<K, T> mapValuesInPlace(Function<V, T> toValue) {
+        ((Map<K, Object>)(Map<K, ?>)this).replaceAll((k, v) -> toValue.apply((V)v));
+        return (SeqMap<K, T>)this;
+    }
 }
@@ -0,0 +1,152 @@
+package com.github.wolray.seq;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Group-by worker that hash-partitions keys into shards, each shard map being owned by whichever task
+ * currently drains it, so no key is ever touched by two threads at once. The accepting thread only
+ * computes keys and fills batches, and the number of batches in flight is bounded.
+ *
+ * @author wolray
+ */
+public class ShardedGroupBy<T, K, V> implements Reducer.Worker<T, SeqMap<K, V>> {
+    static final int BATCH_SIZE = 512;
+
+    final Function<T, K> toKey;
+    final Reducer<T, V> reducer;
+    final Async async;
+    final boolean keepOrder;
+    final Shard[] shards;
+    final Semaphore permits;
+    final int maxInFlight;
+    volatile Throwable error;
+    long index;
+
+    public ShardedGroupBy(Function<T, K> toKey, Reducer<T, V> reducer, Async async, int shards, boolean keepOrder) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("non-positive shards");
+        }
+        this.toKey = toKey;
+        this.reducer = reducer;
+        this.async = async;
+        this.keepOrder = keepOrder;
+        this.shards = newShards(shards);
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard();
+        }
+        maxInFlight = shards * 4;
+        permits = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public void accept(T t) {
+        K k = toKey.apply(t);
+        Shard shard = shards[shardOf(k, shards.length)];
+        Batch<T, K> batch = shard.batch;
+        batch.keys[batch.size] = k;
+        batch.items[batch.size] = t;
+        batch.indexes[batch.size] = index++;
+        if (++batch.size == BATCH_SIZE) {
+            shard.flush();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    Shard[] newShards(int n) {
+        return (Shard[])new ShardedGroupBy<?, ?, ?>.Shard[n];
+    }
+
+    @Override
+    public SeqMap<K, V> result() {
+        for (Shard shard : shards) {
+            if (shard.batch.size > 0) {
+                shard.flush();
+            }
+        }
+        Async.apply(() -> permits.acquire(maxInFlight));
+        permits.release(maxInFlight);
+        Throwable e = error;
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException)e;
+        }
+        if (e instanceof Error) {
+            throw (Error)e;
+        }
+        if (e != null) {
+            throw new IllegalStateException(e);
+        }
+        int size = Seq.of(shards).sumInt(s -> s.map.size());
+        SeqMap<K, V> res = new SeqMap<>(size);
+        if (keepOrder) {
+            Seq<Pair<K, LongPair<Reducer.Worker<T, V>>>>[] sources = SortedMerge.sources(shards.length, i -> shards[i].map.paired());
+            Seq.mergeSorted(Comparator.comparingLong(p -> p.second.longVal), sources)
+                .consume(p -> res.put(p.first, p.second.it.result()));
+        } else {
+            for (Shard shard : shards) {
+                shard.map.forEach((k, p) -> res.put(k, p.it.result()));
+            }
+        }
+        return res;
+    }
+
+    static int shardOf(Object key, int shards) {
+        int h = Objects.hashCode(key);
+        h = (h ^ h >>> 16) * 0x9E3779B9;
+        return (int)((h & 0xFFFFFFFFL) * shards >>> 32);
+    }
+
+    static class Batch<T, K> {
+        final Object[] keys = new Object[BATCH_SIZE];
+        final Object[] items = new Object[BATCH_SIZE];
+        final long[] indexes = new long[BATCH_SIZE];
+        int size;
+    }
+
+    class Shard implements Runnable {
+        final SeqMap<K, LongPair<Reducer.Worker<T, V>>> map = new SeqMap<>();
+        final ConcurrentLinkedQueue<Batch<T, K>> queue = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        Batch<T, K> batch = new Batch<>();
+
+        void flush() {
+            Async.apply(permits::acquire);
+            queue.add(batch);
+            batch = new Batch<>();
+            if (scheduled.compareAndSet(false, true)) {
+                async.submit(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                Batch<T, K> b;
+                while ((b = queue.poll()) != null) {
+                    try {
+                        if (error == null) {
+                            process(b);
+                        }
+                    } catch (Throwable e) {
+                        error = e;
+                    } finally {
+                        permits.release();
+                    }
+                }
+                scheduled.set(false);
+            } while (!queue.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+
+        @SuppressWarnings("unchecked")
+        void process(Batch<T, K> b) {
+            for (int i = 0; i < b.size; i++) {
+                long idx = b.indexes[i];
+                map.computeIfAbsent((K)b.keys[i], k -> new LongPair<>(idx, reducer.get())).it.accept((T)b.items[i]);
+            }
+        }
+    }
+}
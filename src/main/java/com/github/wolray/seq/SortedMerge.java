@@ -0,0 +1,218 @@
+package com.github.wolray.seq;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Lazy k-way merge of sorted sources through a loser tree, pulling each source on demand.
+ * Ties are resolved by source order, so the merge is stable.
+ *
+ * @author wolray
+ */
+public class SortedMerge<T> extends Puller<T> implements AutoCloseable {
+    private final Comparator<T> comparator;
+    private final Iterator<T>[] iterators;
+    private final Object[] heads;
+    private final boolean[] alive;
+    private final int[] tree;
+    private final int k;
+    private boolean started;
+
+    public SortedMerge(Comparator<T> comparator, Seq<T>[] sources) {
+        this.comparator = comparator;
+        k = sources.length;
+        iterators = newIterators(k);
+        for (int i = 0; i < k; i++) {
+            iterators[i] = sources[i].asIterable(256).iterator();
+        }
+        heads = new Object[k];
+        alive = new boolean[k];
+        tree = new int[Math.max(k, 1)];
+    }
+
+    public static <T> ItrSeq<T> of(Comparator<T> comparator, Seq<T>[] sources) {
+        return new ItrSeq<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new SortedMerge<>(comparator, sources);
+            }
+
+            @Override
+            public boolean until(Predicate<T> stop) {
+                try (SortedMerge<T> merge = new SortedMerge<>(comparator, sources)) {
+                    while (merge.hasNext()) {
+                        if (stop.test(merge.next)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            }
+        };
+    }
+
+    /**
+     * Typed copy of the sources, read element by element so that varargs callers stay heap-safe.
+     */
+    public static <T> Seq<T>[] sources(int k, IntFunction<Seq<T>> source) {
+        @SuppressWarnings("unchecked")
+        Seq<T>[] res = (Seq<T>[])new Seq<?>[k];
+        for (int i = 0; i < k; i++) {
+            res[i] = source.apply(i);
+        }
+        return res;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Iterator<T>[] newIterators(int k) {
+        return (Iterator<T>[])new Iterator<?>[k];
+    }
+
+    public static <T, V> ItrSeq<V> reduceEquals(Comparator<T> comparator, Reducer<T, V> reducer, ItrSeq<T> sorted) {
+        return new ItrSeq<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new EqualsReducer<>(comparator, reducer, sorted.iterator());
+            }
+
+            @Override
+            public boolean until(Predicate<V> stop) {
+                try (EqualsReducer<T, V> equals = new EqualsReducer<>(comparator, reducer, sorted.iterator())) {
+                    while (equals.hasNext()) {
+                        if (stop.test(equals.next)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            }
+        };
+    }
+
+    static void close(Iterator<?> iterator) {
+        if (iterator instanceof SortedMerge) {
+            ((SortedMerge<?>)iterator).close();
+        } else if (iterator instanceof EqualsReducer) {
+            ((EqualsReducer<?, ?>)iterator).close();
+        } else {
+            PushPuller.close(iterator);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            for (int i = 0; i < k; i++) {
+                pull(i);
+            }
+            if (k > 0) {
+                tree[0] = build(1);
+            }
+        }
+        if (k == 0) {
+            return false;
+        }
+        int w = tree[0];
+        if (!alive[w]) {
+            return false;
+        }
+        T t = head(w);
+        pull(w);
+        for (int node = (w + k) >> 1; node > 0; node >>= 1) {
+            if (less(tree[node], w)) {
+                int loser = w;
+                w = tree[node];
+                tree[node] = loser;
+            }
+        }
+        tree[0] = w;
+        return set(t);
+    }
+
+    @Override
+    public void close() {
+        for (Iterator<T> iterator : iterators) {
+            close(iterator);
+        }
+    }
+
+    private int build(int node) {
+        if (node >= k) {
+            return node - k;
+        }
+        int l = build(node << 1), r = build(node << 1 | 1);
+        if (less(l, r)) {
+            tree[node] = r;
+            return l;
+        }
+        tree[node] = l;
+        return r;
+    }
+
+    private void pull(int i) {
+        Iterator<T> iterator = iterators[i];
+        alive[i] = iterator.hasNext();
+        heads[i] = alive[i] ? iterator.next() : null;
+    }
+
+    private boolean less(int a, int b) {
+        if (!alive[a]) {
+            return false;
+        }
+        if (!alive[b]) {
+            return true;
+        }
+        int c = comparator.compare(head(a), head(b));
+        return c < 0 || c == 0 && a < b;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T head(int i) {
+        return (T)heads[i];
+    }
+
+    static class EqualsReducer<T, V> extends Puller<V> implements AutoCloseable {
+        final Comparator<T> comparator;
+        final Reducer<T, V> reducer;
+        final Iterator<T> iterator;
+        boolean started;
+        boolean hasHead;
+        T head;
+
+        EqualsReducer(Comparator<T> comparator, Reducer<T, V> reducer, Iterator<T> iterator) {
+            this.comparator = comparator;
+            this.reducer = reducer;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!started) {
+                started = true;
+                if (hasHead = iterator.hasNext()) {
+                    head = iterator.next();
+                }
+            }
+            if (!hasHead) {
+                return false;
+            }
+            Reducer.Worker<T, V> worker = reducer.get();
+            T first = head;
+            worker.accept(first);
+            while ((hasHead = iterator.hasNext()) && comparator.compare(first, head = iterator.next()) == 0) {
+                worker.accept(head);
+            }
+            return set(worker.result());
+        }
+
+        @Override
+        public void close() {
+            hasHead = false;
+            started = true;
+            SortedMerge.close(iterator);
+        }
+    }
+}
@@ -32,19 +32,27 @@ public interface Splitter {
     }
 
     static Splitter of(Pattern sep) {
-        return s -> {
-            char[] chars = s.toCharArray();
-            return p -> {
-                Matcher matcher = sep.matcher(s);
-                int beg = 0;
-                while (matcher.find()) {
-                    if (p.test(substring(chars, beg, matcher.start()))) {
-                        return true;
+        return new Splitter() {
+            @Override
+            public Seq<String> split(String s) {
+                return splitSlices(s).map(CharSlice::toString);
+            }
+
+            @Override
+            public Seq<CharSlice> splitSlices(CharSequence s) {
+                return p -> {
+                    CharSlice slice = new CharSlice();
+                    Matcher matcher = sep.matcher(s);
+                    int beg = 0;
+                    while (matcher.find()) {
+                        if (p.test(slice.set(s, beg, matcher.start()))) {
+                            return true;
+                        }
+                        beg = matcher.end();
                     }
-                    beg = matcher.end();
-                }
-                return p.test(substring(chars, beg, chars.length));
-            };
+                    return p.test(slice.set(s, beg, s.length()));
+                };
+            }
         };
     }
 
@@ -56,37 +64,50 @@ public interface Splitter {
         if (len == 1) {
             return of(literal.charAt(0));
         }
-        return s -> {
-            char[] chars = s.toCharArray();
-            return p -> {
-                int beg = 0, index;
-                while ((index = s.indexOf(literal, beg)) > 0) {
-                    if (p.test(substring(chars, beg, index))) {
-                        return true;
+        return new Splitter() {
+            @Override
+            public Seq<String> split(String s) {
+                return splitSlices(s).map(CharSlice::toString);
+            }
+
+            @Override
+            public Seq<CharSlice> splitSlices(CharSequence s) {
+                return p -> {
+                    CharSlice slice = new CharSlice();
+                    int beg = 0, end = s.length(), index;
+                    while ((index = CharSlice.indexOf(s, literal, beg, end)) >= 0) {
+                        if (p.test(slice.set(s, beg, index))) {
+                            return true;
+                        }
+                        beg = index + len;
                     }
-                    beg = index + len;
-                }
-                return p.test(substring(chars, beg, chars.length));
-            };
+                    return p.test(slice.set(s, beg, end));
+                };
+            }
         };
     }
 
     static Splitter of(char sep) {
-        return s -> {
-            char[] chars = s.toCharArray();
-            int len = s.length();
-            return p -> {
-                int last = 0;
-                for (int i = 0; i < len; i++) {
-                    if (chars[i] == sep) {
-                        if (p.test(substring(chars, last, i))) {
+        return new Splitter() {
+            @Override
+            public Seq<String> split(String s) {
+                return splitSlices(s).map(CharSlice::toString);
+            }
+
+            @Override
+            public Seq<CharSlice> splitSlices(CharSequence s) {
+                return p -> {
+                    CharSlice slice = new CharSlice();
+                    int last = 0, end = s.length(), i;
+                    while ((i = CharSlice.indexOf(s, sep, last, end)) >= 0) {
+                        if (p.test(slice.set(s, last, i))) {
                             return true;
                         }
                         last = i + 1;
                     }
-                }
-                return p.test(substring(chars, last, len));
-            };
+                    return p.test(slice.set(s, last, end));
+                };
+            }
         };
     }
 
@@ -97,4 +118,14 @@ public interface Splitter {
     static String substring(char[] chars, int start, int end) {
         return start < end ? new String(chars, start, end - start) : "";
     }
+
+    /**
+     * Fields as one reusable {@link CharSlice}, only valid until the next field is emitted.
+     */
+    default Seq<CharSlice> splitSlices(CharSequence s) {
+        return p -> {
+            CharSlice slice = new CharSlice();
+            return split(s.toString()).until(f -> p.test(slice.set(f, 0, f.length())));
+        };
+    }
 }
@@ -0,0 +1,339 @@
+package com.github.wolray.seq;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * File entries of a zip or jar archive, listed from one read of the central directory. Every entry
+ * source reads its bytes with positional reads on the one channel the archive keeps open until
+ * {@link #close()}, so entries can be read in any order and from several threads at once.
+ *
+ * @author wolray
+ */
+public class ZipArchive implements Seq2<String, ByteSource>, Closeable {
+    static final int EOCD = 0x06054b50;
+    static final int EOCD64 = 0x06064b50;
+    static final int EOCD64_LOCATOR = 0x07064b50;
+    static final int CEN = 0x02014b50;
+    static final int LOC = 0x04034b50;
+
+    final FileChannel channel;
+    final SeqList<Entry> entries = new SeqList<>();
+    final Map<String, Entry> byName = new HashMap<>();
+
+    public ZipArchive(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            readDirectory();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean until(BiPredicate<String, ByteSource> predicate) {
+        return entries.until(e -> predicate.test(e.name, e));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Source of the entry named {@code name}, or null if there is none.
+     */
+    public ByteSource entry(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * Applies {@code function} to every entry on the async, returning the results in entry order.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> SeqList<V> mapParallel(Async async, BiFunction<String, ByteSource, V> function) {
+        int n = entries.size();
+        Object[] res = new Object[n];
+        async.joinAll(Seq.range(n).map(i -> () -> res[i] = function.apply(entries.get(i).name, entries.get(i))));
+        SeqList<V> list = new SeqList<>(n);
+        for (Object o : res) {
+            list.add((V)o);
+        }
+        return list;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    void readDirectory() throws IOException {
+        long size = channel.size();
+        int tail = (int)Math.min(size, 22 + 0xFFFF);
+        ByteBuffer buf = read(size - tail, tail);
+        int eocd = -1;
+        for (int i = tail - 22; i >= 0; i--) {
+            if (buf.getInt(i) == EOCD) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new ZipException("end of central directory not found");
+        }
+        long count = buf.getShort(eocd + 10) & 0xFFFF;
+        long cenSize = buf.getInt(eocd + 12) & 0xFFFFFFFFL;
+        long cenOffset = buf.getInt(eocd + 16) & 0xFFFFFFFFL;
+        long locator = size - tail + eocd - 20;
+        if (locator >= 0 && read(locator, 4).getInt(0) == EOCD64_LOCATOR) {
+            ByteBuffer eocd64 = read(read(locator, 20).getLong(8), 56);
+            if (eocd64.getInt(0) != EOCD64) {
+                throw new ZipException("invalid zip64 end of central directory");
+            }
+            count = eocd64.getLong(32);
+            cenSize = eocd64.getLong(40);
+            cenOffset = eocd64.getLong(48);
+        }
+        if (cenSize > Integer.MAX_VALUE) {
+            throw new ZipException("central directory too large");
+        }
+        ByteBuffer cen = read(cenOffset, (int)cenSize);
+        for (int p = 0; count-- > 0; ) {
+            if (cen.getInt(p) != CEN) {
+                throw new ZipException("invalid central directory header at " + (cenOffset + p));
+            }
+            int nameLen = cen.getShort(p + 28) & 0xFFFF;
+            int extraLen = cen.getShort(p + 30) & 0xFFFF;
+            int commentLen = cen.getShort(p + 32) & 0xFFFF;
+            String name = new String(cen.array(), p + 46, nameLen, StandardCharsets.UTF_8);
+            Entry e = new Entry(name, cen.getShort(p + 10) & 0xFFFF, cen.getInt(p + 16));
+            e.size = cen.getInt(p + 24) & 0xFFFFFFFFL;
+            e.compressedSize = cen.getInt(p + 20) & 0xFFFFFFFFL;
+            e.headerOffset = cen.getInt(p + 42) & 0xFFFFFFFFL;
+            e.readZip64(cen, p + 46 + nameLen, extraLen);
+            if ((cen.getShort(p + 8) & 1) != 0) {
+                e.method = -1;
+            }
+            if (!name.endsWith("/")) {
+                entries.add(e);
+                byName.putIfAbsent(name, e);
+            }
+            p += 46 + nameLen + extraLen + commentLen;
+        }
+    }
+
+    ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, offset + buf.position()) < 0) {
+                throw new EOFException("truncated zip archive");
+            }
+        }
+        return buf;
+    }
+
+    class Entry implements ByteSource {
+        final String name;
+        final int crc;
+        int method;
+        long size;
+        long compressedSize;
+        long headerOffset;
+        volatile long dataOffset = -1;
+
+        Entry(String name, int method, int crc) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+        }
+
+        @Override
+        public InputStream call() throws IOException {
+            ByteSource raw = () -> new RegionInputStream(dataOffset(), compressedSize);
+            return new CheckedEntryStream((method == 0 ? raw : raw.inflate(true)).call(), this);
+        }
+
+        @Override
+        public byte[] toBytes() {
+            return IOChain.apply(this, e -> {
+                if (size > Integer.MAX_VALUE - 8 || compressedSize > Integer.MAX_VALUE - 8) {
+                    throw new OutOfMemoryError("entry too large: " + name);
+                }
+                byte[] data = read(dataOffset(), (int)compressedSize).array();
+                if (method == 0) {
+                    return checked(data);
+                }
+                byte[] res = new byte[(int)size];
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(data);
+                    int n = 0;
+                    while (n < res.length && !inflater.finished()) {
+                        int k = inflater.inflate(res, n, res.length - n);
+                        if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        n += k;
+                    }
+                    if (n != res.length) {
+                        throw new ZipException("invalid entry size: " + name);
+                    }
+                    return checked(res);
+                } catch (DataFormatException ex) {
+                    throw new ZipException(ex.getMessage());
+                } finally {
+                    inflater.end();
+                }
+            });
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+        byte[] checked(byte[] bytes) throws ZipException {
+            CRC32 c = new CRC32();
+            c.update(bytes);
+            if ((int)c.getValue() != crc) {
+                throw new ZipException("invalid entry crc: " + name);
+            }
+            return bytes;
+        }
+
+        long dataOffset() throws IOException {
+            if (method != 0 && method != 8) {
+                throw new ZipException("unsupported compression method " + method + ": " + name);
+            }
+            long res = dataOffset;
+            if (res < 0) {
+                ByteBuffer loc = read(headerOffset, 30);
+                if (loc.getInt(0) != LOC) {
+                    throw new ZipException("invalid local header: " + name);
+                }
+                dataOffset = res = headerOffset + 30 + (loc.getShort(26) & 0xFFFF) + (loc.getShort(28) & 0xFFFF);
+            }
+            return res;
+        }
+
+        void readZip64(ByteBuffer cen, int from, int length) {
+            for (int i = from, end = from + length; i + 4 <= end; ) {
+                int id = cen.getShort(i) & 0xFFFF;
+                int len = cen.getShort(i + 2) & 0xFFFF;
+                if (id == 1) {
+                    int k = i + 4;
+                    if (size == 0xFFFFFFFFL) {
+                        size = cen.getLong(k);
+                        k += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL) {
+                        compressedSize = cen.getLong(k);
+                        k += 8;
+                    }
+                    if (headerOffset == 0xFFFFFFFFL) {
+                        headerOffset = cen.getLong(k);
+                    }
+                    return;
+                }
+                i += 4 + len;
+            }
+        }
+    }
+
+    class RegionInputStream extends InputStream {
+        long pos;
+        final long end;
+
+        RegionInputStream(long offset, long length) {
+            pos = offset;
+            end = offset + length;
+        }
+
+        @Override
+        public int available() {
+            return (int)Math.min(Integer.MAX_VALUE, end - pos);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (pos >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int)Math.min(len, end - pos)), pos);
+            if (n < 0) {
+                throw new EOFException("truncated zip entry");
+            }
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long k = Math.max(0, Math.min(n, end - pos));
+            pos += k;
+            return k;
+        }
+    }
+
+    /**
+     * Checks the size and crc of an entry once its stream reaches the end, like {@code toBytes()} does.
+     */
+    static class CheckedEntryStream extends CheckedInputStream {
+        final Entry entry;
+        long count;
+
+        CheckedEntryStream(InputStream in, Entry entry) {
+            super(in, new CRC32());
+            this.entry = entry;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            check(b < 0 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            check(n);
+            return n;
+        }
+
+        void check(int n) throws ZipException {
+            if (n > 0) {
+                count += n;
+            }
+            if (count > entry.size || n < 0 && count != entry.size) {
+                throw new ZipException("invalid entry size: " + entry.name);
+            }
+            if (n < 0 && (int)getChecksum().getValue() != entry.crc) {
+                throw new ZipException("invalid entry crc: " + entry.name);
+            }
+        }
+    }
+}
@@ -2,6 +2,33 @@ package com.github.wolray.seq;
 
 import org.junit.Test;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
 public class ByteSourceTest {
     @Test
     public void testByteSource() {
@@ -13,4 +40,463 @@ public class ByteSourceTest {
             assert bytes1[i] == bytes2[i];
         }
     }
+
+    @Test
+    public void testLines() throws IOException {
+        String text = "a\r\nbb\rccc\n\n\r\ndddddddddddddddddddd\r\n中文\r";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        List<String> expected = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+        for (String s; (s = reader.readLine()) != null; ) {
+            expected.add(s);
+        }
+        Path path = Files.createTempFile("", ".txt");
+        try {
+            Files.write(path, bytes);
+            ByteSource source = ByteSource.of(path).withCharset(StandardCharsets.UTF_8);
+            assert source.toLines().toList().equals(expected);
+            assert ByteSource.of(bytes).withCharset(StandardCharsets.UTF_8).toLines().toList().equals(expected);
+            assert ByteSource.ofStream(() -> new ByteArrayInputStream(bytes)).withCharset(StandardCharsets.UTF_8)
+                .toLines().toList().equals(expected);
+            for (int window = 1; window < 8; window++) {
+                List<String> list = new ArrayList<>();
+                try (FileChannel channel = FileChannel.open(path)) {
+                    LineReader.until(channel, 0, channel.size(), window, s -> {
+                        list.add(s.toString());
+                        return false;
+                    });
+                }
+                assert list.equals(expected) : window;
+            }
+            assert source.toLineSlices().map(ByteSlice::copy).map(ByteSlice::toString).toList().equals(expected);
+            assert source.toLineSlices().count(s -> s.indexOf((byte)'d', 0) == 0) == 1;
+            Files.write(path, "ok\n\uFFFD\n".getBytes(StandardCharsets.UTF_8));
+            assert LineReader.decode(ByteSource.of(path).toLineSlices(), StandardCharsets.UTF_8).last().equals("\uFFFD");
+            Files.write(path, new byte[]{'o', 'k', '\n', (byte)0xC3, '(', '\n'});
+            try {
+                LineReader.decode(ByteSource.of(path).toLineSlices(), StandardCharsets.UTF_8).toList();
+                assert false;
+            } catch (UncheckedIOException e) {
+                assert e.getCause() instanceof MalformedInputException;
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testLinesParallel() throws IOException {
+        List<String> expected = Seq.range(1000).map(i -> "line-" + i).toList();
+        String text = String.join("\n", expected) + "\n";
+        Path path = Files.createTempFile("", ".txt");
+        try {
+            Files.write(path, text.getBytes());
+            for (long chunk : new long[]{1, 7, 100, 1 << 20}) {
+                ChunkedLines chunked = ByteSource.of(path).toLinesParallel(Async.common(), chunk);
+                assert chunked.toSeq().toList().equals(expected);
+                assert chunked.reduce(Reducer.count(), Integer::sum) == 1000;
+                assert chunked.map(Seq::count).sumInt(i -> i) == 1000;
+                assert chunked.reduce(Reducer.sample(5, new Random(1))).size() == 5;
+                ChunkedLines inMemory = ByteSource.of(text.getBytes()).toLinesParallel(Async.common(), chunk);
+                assert inMemory.toSeq().take(10).toList().equals(expected.subList(0, 10));
+                ChunkedLines streamed = ByteSource.ofStream(() -> new ByteArrayInputStream(text.getBytes()))
+                    .withCharset(StandardCharsets.UTF_8).toLinesParallel(Async.common(), chunk);
+                assert streamed.chunks() == 1;
+                assert streamed.toSeq().toList().equals(expected);
+                assert streamed.toSeq().first().equals("line-0");
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testByteSplitter() {
+        ByteSplitter comma = ByteSplitter.of(',');
+        assert comma.split(ByteSlice.of("a,bb,,ccc,")).map(ByteSlice::toString).toList().equals(Arrays.asList("a", "bb", "", "ccc", ""));
+        assert ByteSplitter.of("::").split("x::y:z::".getBytes()).map(ByteSlice::toString).toList().equals(Arrays.asList("x", "y:z", ""));
+        ByteSplitter csv = comma.withQuote('"');
+        String line = "1,\"a,b\",\"say \"\"hi\"\"\",\"\",中文";
+        assert csv.split(ByteSlice.of(line)).map(ByteSlice::toString).toList().equals(Arrays.asList("1", "a,b", "say \"hi\"", "", "中文"));
+        String text = "id,name\n1,\"x,y\"\n2,z\n";
+        List<String> names = ByteSource.of(text.getBytes()).toFields(csv).map(r -> r.get(1).toString()).toList();
+        assert names.equals(Arrays.asList("name", "x,y", "z"));
+    }
+
+    @Test
+    public void testCsvSource() {
+        String text = "id,name,score,note\r\n"
+            + "1,a,1.5,plain\r\n"
+            + "\r\n"
+            + "2,\"b,c\",-2.25,\"multi\nline \"\"quoted\"\"\"\n"
+            + "3,d,1e3,\n"
+            + "4,e,7";
+        CsvSource csv = CsvSource.of(ByteSource.of(text.getBytes()));
+        assert Arrays.equals(csv.header(), new String[]{"id", "name", "score", "note"});
+        assert csv.map(r -> r.getInt("id")).toList().equals(Arrays.asList(1, 2, 3, 4));
+        assert csv.map(r -> r.getString(1)).toList().equals(Arrays.asList("a", "b,c", "d", "e"));
+        assert csv.map(r -> r.getString("note")).toList().equals(Arrays.asList("plain", "multi\nline \"quoted\"", "", ""));
+        assert csv.sum(r -> r.getDouble("score")) == 1.5 - 2.25 + 1e3 + 7;
+        CsvSource projected = csv.select("score", "id");
+        assert projected.map(r -> r.size() + ":" + r.getLong(1) + ":" + r.getDouble("score")).toList()
+            .equals(Arrays.asList("2:1:1.5", "2:2:-2.25", "2:3:1000.0", "2:4:7.0"));
+        String tsv = "x\ty\tz\n1\t2\t3\n4\t5\t6\n";
+        assert CsvSource.ofTsv(ByteSource.of(tsv.getBytes())).select(1).map(r -> r.getInt(0)).toList().equals(Arrays.asList(2, 5));
+        assert CsvSource.ofTsv(ByteSource.of(tsv.getBytes())).withoutHeader().count() == 3;
+        CsvSource quotedEmpty = CsvSource.of(ByteSource.of("a\n\"\"\n\nb\n\"\"".getBytes())).withoutHeader();
+        assert quotedEmpty.map(r -> r.size() + ":" + r.getString(0)).toList().equals(Arrays.asList("1:a", "1:", "1:b", "1:"));
+    }
+
+    @Test
+    public void testJsonSource() {
+        String json = "{\"total\": 2, \"items\": [{\"id\": 1, \"tags\": [\"a\", \"b\\\"c\"]},"
+            + " {\"id\": 12345678901234567890, \"x\": {\"y\": -1.5e2}, \"n\": null}], \"\\u00e9\": true}";
+        JsonSource source = JsonSource.of(ByteSource.of(json.getBytes()));
+        SeqList<Object> items = source.values("$.items[*]").toList();
+        assert items.size() == 2;
+        assert items.get(0).toString().equals("{id=1, tags=[a, b\"c]}");
+        assert items.get(1).toString().equals("{id=12345678901234567890, x={y=-150.0}, n=null}");
+        assert source.values("$.items[*].id").toList().equals(Arrays.asList(1L, new java.math.BigInteger("12345678901234567890")));
+        assert source.values("$.items[0].tags[1]").toList().equals(Arrays.asList("b\"c"));
+        assert source.values("$['\u00e9']").toList().equals(Arrays.asList(true));
+        assert source.values("$.*").count() == 3;
+        assert source.events().count(e -> e.type() == JsonSource.Type.NAME) == 9;
+        assert source.events().filter(e -> e.type() == JsonSource.Type.STRING).map(JsonSource.Event::text).toList()
+            .equals(Arrays.asList("a", "b\"c"));
+
+        String ndjson = "{\"a\": 1}\n\n{\"a\": [2, 3]}\r\n\"s\"\n";
+        assert JsonSource.ndjson(ByteSource.of(ndjson.getBytes())).map(Object::toString).toList()
+            .equals(Arrays.asList("{a=1}", "{a=[2, 3]}", "s"));
+        assert JsonSource.of(ByteSource.of(ndjson.getBytes())).values("$.a").toList().equals(Arrays.asList(1L, Arrays.asList(2L, 3L)));
+        try {
+            JsonSource.of(ByteSource.of("[1, }".getBytes())).events().consume(e -> {});
+            assert false;
+        } catch (IllegalStateException ignored) {}
+        for (String number : new String[]{"1.2.3", "12abc", "01", "-", "1.", ".5", "1e", "1e+", "--1", "1E5x"}) {
+            try {
+                JsonSource.of(ByteSource.of(("{\"skipped\": " + number + ", \"a\": 1}").getBytes())).values("$.a").toList();
+                assert false : number;
+            } catch (IllegalStateException ignored) {}
+        }
+        assert JsonSource.of(ByteSource.of("[0, -0.5, 1E+2, 2e-3, 10]".getBytes())).values("$[*]").toList()
+            .equals(Arrays.asList(0L, -0.5, 100.0, 0.002, 10L));
+    }
+
+    @Test
+    public void testByteSink() throws IOException {
+        Path path = Files.createTempFile("", ".txt");
+        try {
+            List<String> lines = Seq.range(100000).map(i -> i % 1000 == 0 ? "中文" + i : "line" + i).toList();
+            Seq.of(lines).writeLines(path, StandardCharsets.UTF_8);
+            assert Files.readAllLines(path, StandardCharsets.UTF_8).equals(lines);
+            Seq.range(3).writeBytes(path, i -> new byte[]{(byte)('a' + i)});
+            assert new String(Files.readAllBytes(path)).equals("abc");
+            try (ByteSink sink = ByteSink.of(path, StandardCharsets.UTF_8, ByteSink.Sync.ON_CLOSE)) {
+                sink.write("x,").write(ByteSlice.of("yz")).write(new byte[100000]).flush();
+            }
+            assert Files.size(path) == 100004;
+            try (ByteSink sink = ByteSink.of(path, StandardCharsets.UTF_8, ByteSink.Sync.NONE)) {
+                sink.write("a\uD83D").write("").write("\uDE00b").write("\uD83D");
+                sink.close();
+                try {
+                    sink.write("c");
+                    assert false;
+                } catch (IllegalStateException ignored) {
+                }
+            }
+            assert new String(Files.readAllBytes(path), StandardCharsets.UTF_8).equals("a\uD83D\uDE00b?");
+        } finally {
+            Files.delete(path);
+        }
+        assert Seq.of(1, 2, 3).joinTo(new StringBuilder("["), ", ").append(']').toString().equals("[1, 2, 3]");
+    }
+
+    @Test
+    public void testConcatAndSlice() throws IOException {
+        Path a = Files.createTempFile("", ".txt"), b = Files.createTempFile("", ".txt");
+        try {
+            Files.write(a, "0123456789".getBytes());
+            ByteSource file = ByteSource.of(a);
+            ByteSource bytes = ByteSource.of("abcdef".getBytes());
+            ByteSource stream = ByteSource.ofStream(() -> new ByteArrayInputStream("XYZ".getBytes()));
+            ByteSource all = ByteSource.concat(file.slice(2, 5), bytes.slice(4, 10), stream, file.slice(8, 1).slice(0, 5));
+            assert all.asString().equals("23456efXYZ8");
+            all.write(b);
+            assert new String(Files.readAllBytes(b)).equals("23456efXYZ8");
+            assert stream.slice(1, 1).asString().equals("Y");
+            assert file.slice(3, 4).toLines().toList().equals(Arrays.asList("3456"));
+            assert new String(file.slice(7, 100).toBytes()).equals("789");
+            assert file.slice(2, 3).slice(5, 10).toBytes().length == 0;
+            assert new String(file.slice(2, 3).slice(1, Long.MAX_VALUE).slice(1, Long.MAX_VALUE).toBytes()).equals("4");
+            try (FileChannel channel = FileChannel.open(b, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                assert file.slice(0, 3).transferTo(channel) == 3;
+                assert stream.transferTo(channel) == 3;
+            }
+            assert new String(Files.readAllBytes(b)).equals("23456efXYZ8012XYZ");
+        } finally {
+            Files.delete(a);
+            Files.delete(b);
+        }
+    }
+
+    @Test
+    public void testToBytes() {
+        byte[] data = new byte[300000];
+        new Random(2).nextBytes(data);
+        for (int hint : new int[]{0, 1000, data.length, data.length + 5}) {
+            ByteSource source = ByteSource.ofStream(() -> new ByteArrayInputStream(data) {
+                @Override
+                public synchronized int available() {
+                    return Math.min(hint, count - pos);
+                }
+            });
+            assert Arrays.equals(source.toBytes(), data);
+            assert Arrays.equals(source.toBytes(7), data);
+            assert Arrays.equals(source.slice(10, 20).toBytes(), Arrays.copyOfRange(data, 10, 30));
+            assert Arrays.equals(source.cache().toBytes(), data);
+            byte[] pooled = ReadBuffer.POOL.get();
+            assert pooled == null || pooled.length <= ReadBuffer.MAX_POOLED;
+        }
+        assert ByteSource.ofStream(() -> new ByteArrayInputStream(new byte[0])).toBytes().length == 0;
+    }
+
+    @Test
+    public void testPrefetching() throws IOException {
+        byte[] data = new byte[100003];
+        new Random(4).nextBytes(data);
+        for (int block : new int[]{1, 1000, 1 << 20}) {
+            ByteSource source = ByteSource.ofStream(() -> new ByteArrayInputStream(data)).prefetching(Async.common(), block, 3);
+            assert Arrays.equals(source.toBytes(), data);
+        }
+        List<String> lines = Seq.range(5000).map(i -> "p" + i).toList();
+        ByteSource text = ByteSource.of(String.join("\n", lines).getBytes()).prefetching(Async.common(), 4096, 2);
+        assert text.toLines().toList().equals(lines);
+        assert text.toLines().take(3).toList().equals(lines.subList(0, 3));
+        ByteSource failing = ByteSource.ofStream(() -> new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("boom");
+            }
+        }).prefetching(Async.common(), 16, 2);
+        try {
+            failing.toBytes();
+            assert false;
+        } catch (UncheckedIOException e) {
+            assert e.getCause().getMessage().equals("boom");
+        }
+        CountDownLatch entered = new CountDownLatch(1), release = new CountDownLatch(1);
+        AtomicBoolean stalledClosed = new AtomicBoolean();
+        PrefetchInputStream stalled = new PrefetchInputStream(new InputStream() {
+            @Override
+            public int read() {
+                entered.countDown();
+                Async.apply(release::await);
+                return 0;
+            }
+
+            @Override
+            public void close() {
+                stalledClosed.set(true);
+            }
+        }, Async.common(), 16, 2);
+        Async.apply(entered::await);
+        stalled.close();
+        assert !stalledClosed.get();
+        try {
+            stalled.read();
+            assert false;
+        } catch (IOException e) {
+            assert e.getMessage().equals("stream closed");
+        }
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!stalledClosed.get()) {
+            assert System.currentTimeMillis() < deadline;
+            Async.sleep(10);
+        }
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        List<String> lines = Seq.range(20000).map(i -> "g" + i * 7).toList();
+        byte[] data = (String.join("\n", lines) + "\n").getBytes();
+        Path plain = Files.createTempFile("seq", ".gz");
+        Path bgzf = Files.createTempFile("seq", ".gz");
+        try {
+            try (ByteSink sink = ByteSink.ofGzip(plain, StandardCharsets.UTF_8)) {
+                lines.forEach(sink::writeLine);
+            }
+            assert Arrays.equals(ByteSource.of(plain).gzip().toBytes(), data);
+            assert Arrays.equals(ByteSource.gzip(plain, Async.common()).toBytes(), data);
+            ByteBuffer out = ByteBuffer.allocate(data.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i <= data.length; i += 1000) {
+                int len = Math.min(1000, data.length - i);
+                Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+                deflater.setInput(data, i, len);
+                deflater.finish();
+                byte[] body = new byte[len + 64];
+                int n = deflater.deflate(body);
+                deflater.end();
+                CRC32 crc = new CRC32();
+                crc.update(data, i, len);
+                boolean other = i / 1000 % 2 == 1;
+                out.put(new byte[]{0x1f, (byte)0x8b, 8, 4, 0, 0, 0, 0, 0, (byte)0xff, (byte)(other ? 12 : 6), 0});
+                if (other) {
+                    out.put(new byte[]{'X', 'Y', 2, 0, 7, 7});
+                }
+                out.put(new byte[]{'B', 'C', 2, 0});
+                out.putShort((short)((other ? 24 : 18) + n + 8 - 1)).put(body, 0, n).putInt((int)crc.getValue()).putInt(len);
+            }
+            Files.write(bgzf, Arrays.copyOf(out.array(), out.position()));
+            assert BgzfInputStream.isBgzf(bgzf) && !BgzfInputStream.isBgzf(plain);
+            assert Arrays.equals(ByteSource.of(bgzf).gzip().toBytes(), data);
+            ByteSource parallel = ByteSource.gzip(bgzf, Async.common());
+            assert Arrays.equals(parallel.toBytes(), data);
+            assert parallel.toLines().toList().equals(lines);
+            assert parallel.toLines().take(2).toList().equals(lines.subList(0, 2));
+        } finally {
+            Files.delete(plain);
+            Files.delete(bgzf);
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] raw = new byte[data.length];
+        int n = deflater.deflate(raw);
+        deflater.end();
+        assert Arrays.equals(ByteSource.of(Arrays.copyOf(raw, n)).inflate(true).toBytes(), data);
+    }
+
+    @Test
+    public void testZipEntries() throws IOException {
+        Path zip = Files.createTempFile("seq", ".zip");
+        try {
+            try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
+                zos.putNextEntry(new ZipEntry("dir/"));
+                for (int i = 0; i < 50; i++) {
+                    ZipEntry entry = new ZipEntry("dir/e" + i + ".txt");
+                    byte[] bytes = Seq.range(i * 100).map(j -> "line" + j).join("\n").getBytes();
+                    if (i % 3 == 0) {
+                        CRC32 crc = new CRC32();
+                        crc.update(bytes);
+                        entry.setMethod(ZipEntry.STORED);
+                        entry.setSize(bytes.length);
+                        entry.setCrc(crc.getValue());
+                    }
+                    zos.putNextEntry(entry);
+                    zos.write(bytes);
+                }
+            }
+            try (ZipArchive archive = ByteSource.zipEntries(zip)) {
+                assert archive.size() == 50;
+                archive.consume((name, source) -> {
+                    int i = Integer.parseInt(name.substring(5, name.length() - 4));
+                    List<String> expected = Seq.range(i * 100).map(j -> "line" + j).toList();
+                    assert source.toLines().toList().equals(expected);
+                    assert new String(source.toBytes()).equals(String.join("\n", expected));
+                });
+                SeqList<Integer> counts = archive.mapParallel(Async.common(), (name, source) -> source.toLines().count());
+                assert counts.equals(Seq.range(50).map(i -> i * 100).toList());
+                assert archive.entry("dir/e7.txt").toLines().first().equals("line0");
+                assert archive.entry("dir/") == null;
+            }
+            byte[] bytes = Files.readAllBytes(zip);
+            String text = new String(bytes, StandardCharsets.ISO_8859_1);
+            bytes[text.indexOf("line299")] = 'L';
+            Files.write(zip, bytes);
+            try (ZipArchive archive = ByteSource.zipEntries(zip)) {
+                ByteSource corrupted = archive.entry("dir/e3.txt");
+                for (int i = 0; i < 2; i++) {
+                    try {
+                        if (i == 0) {
+                            corrupted.toLines().count();
+                        } else {
+                            corrupted.toBytes();
+                        }
+                        assert false;
+                    } catch (UncheckedIOException e) {
+                        assert e.getCause().getMessage().startsWith("invalid entry crc");
+                    }
+                }
+            }
+        } finally {
+            Files.delete(zip);
+        }
+    }
+
+    @Test
+    public void testFollow() throws Exception {
+        Path log = Files.createTempFile("seq", ".log");
+        Path rotated = Paths.get(log + ".1");
+        try {
+            Files.write(log, "a\r\nb\nc".getBytes());
+            FollowSource follow = ByteSource.follow(log).withIdleTimeout(50);
+            assert follow.toList().equals(Arrays.asList("a", "b"));
+            assert follow.committed() == 5;
+            Files.write(log, "c\nd\n".getBytes(), StandardOpenOption.APPEND);
+            FollowSource resumed = follow.from(follow.committed());
+            assert resumed.take(1).toList().equals(Arrays.asList("cc"));
+            assert resumed.committed() == 8;
+            assert resumed.from(resumed.committed()).toList().equals(Arrays.asList("d"));
+            assert follow.from(1000).toList().equals(Arrays.asList("a", "b", "cc", "d"));
+            Thread writer = new Thread(() -> IOChain.apply(log, p -> {
+                Async.sleep(30);
+                Files.write(p, "e\nf".getBytes(), StandardOpenOption.APPEND);
+                Async.sleep(30);
+                Files.move(p, rotated);
+                Files.write(p, "g\nh\n".getBytes());
+                return null;
+            }));
+            writer.start();
+            FollowSource live = ByteSource.follow(log).from(10).withPolling(5, 20);
+            assert live.take(3).toList().equals(Arrays.asList("e", "f", "g"));
+            writer.join();
+            assert live.committed() == 2;
+        } finally {
+            Files.deleteIfExists(log);
+            Files.deleteIfExists(rotated);
+        }
+    }
+
+    @Test
+    public void testLineIndex() throws IOException {
+        Random random = new Random(6);
+        StringBuilder sb = new StringBuilder();
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String s = "l" + i + "xxxx".substring(random.nextInt(5));
+            lines.add(s);
+            sb.append(s).append(random.nextInt(3) == 0 ? "\r\n" : random.nextBoolean() ? "\r" : "\n");
+        }
+        Path path = Files.createTempFile("seq", ".txt");
+        try {
+            Files.write(path, sb.toString().getBytes());
+            for (int step : new int[]{1, 7, 1000, 10000}) {
+                LineIndex index = LineIndex.build(path, step);
+                assert index.lineCount() == lines.size();
+                assert index.lines(1234, 1300).toList().equals(lines.subList(1234, 1300));
+                assert index.lines(4990, 6000).toList().equals(lines.subList(4990, 5000));
+                assert index.lines(0, 0).toList().isEmpty();
+                SeqList<ByteSource> parts = index.split(4);
+                assert parts.map(ByteSource::toLines).flatMap(s -> s).toList().equals(lines);
+            }
+            ByteSource source = ByteSource.of(path);
+            assert source.lines(100, 103).toList().equals(lines.subList(100, 103));
+            LineIndex index = LineIndex.of(path, 64);
+            assert LineIndex.load(path).offsetOf(4999) == index.offsetOf(4999);
+            assert source.lines(2000, 2005).toList().equals(lines.subList(2000, 2005));
+            assert ByteSource.of(lines).lines(3, 5).toList().equals(lines.subList(3, 5));
+            Files.write(path, "a\nb\n".getBytes(), StandardOpenOption.APPEND);
+            assert LineIndex.load(path) == null;
+            assert LineIndex.of(path, 64).lineCount() == 5002;
+            assert LineIndex.load(path).lineCount() == 5002;
+            String prefix = path.getFileName() + ".lidx.";
+            try (Stream<Path> files = Files.list(path.toAbsolutePath().getParent())) {
+                assert files.noneMatch(f -> f.getFileName().toString().startsWith(prefix));
+            }
+        } finally {
+            Files.delete(path);
+            Files.deleteIfExists(Paths.get(path + ".lidx"));
+        }
+    }
 }
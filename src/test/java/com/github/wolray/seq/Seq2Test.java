@@ -2,6 +2,8 @@ package com.github.wolray.seq;
 
 import org.junit.Test;
 
+import java.util.Comparator;
+
 import static com.github.wolray.seq.SeqTest.assertTo;
 
 public class Seq2Test {
@@ -13,6 +15,42 @@ public class Seq2Test {
         assertTo(Seq.of(1, 2, 3, 4, 5).toPairs(false).mapIf((p, i, j) -> p.test(i + "@" + j)), "1@2,3@4");
     }
 
+    @Test
+    public void testJoin() {
+        SeqList<Integer> left = Seq.of(1, 2, 3, 4).toList();
+        ItrSeq<String> right = Seq.of("1a", "3a", "3b", "5a");
+        assertTo(left.joinBy(right, i -> i, s -> s.charAt(0) - '0').map((i, s) -> i + s), "11a,33a,33b");
+        assertTo(left.leftJoin(right, i -> i, s -> s.charAt(0) - '0').map((i, s) -> i + ":" + s), "1:1a,2:null,3:3a,3:3b,4:null");
+        assertTo(left.semiJoin(right, i -> i, s -> s.charAt(0) - '0'), "1,3");
+        assertTo(left.antiJoin(right, i -> i, s -> s.charAt(0) - '0'), "2,4");
+        assertTo(left.joinBy(right, i -> i, s -> s.charAt(0) - '0').map((i, s) -> s).take(2), "1a,3a");
+        assertTo(Seq.of(3, 1).toList().joinBy(Seq.range(10).toList(), i -> i, j -> j).map((i, j) -> i + "" + j), "33,11");
+        SeqList<Integer> small = Seq.of(3, 1, 3, 7).toList();
+        assertTo(small.joinBy(Seq.of(1, 3, 3, 5, 6).toList(), i -> i, j -> j).map((i, j) -> i + "" + j), "33,33,11,33,33");
+        assertTo(small.joinBy(Seq.of(1, 3, 3, 5, 6).toList(), i -> i, j -> j).map((i, j) -> i).take(3), "3,3,1");
+
+        SeqList<Integer> big = Seq.range(1000).toList();
+        Seq2<Integer, Integer> spilled = big.joinBy(Seq.range(2000), i -> i % 100, j -> j % 100, 50);
+        assert spilled.map((i, j) -> i % 100 == j % 100).count(b -> b) == 20000;
+        assert big.antiJoin(Seq.range(500), i -> i, j -> j, 50).sorted().first() == 500;
+    }
+
+    @Test
+    public void testMergeJoin() {
+        Seq2<Integer, String> left = Seq.of(1, 2, 2, 4, 5).pairWith(i -> "L" + i);
+        Seq2<Integer, String> right = Seq.direct(2, 3, 4, 4, 6).pairWith(i -> "R" + i);
+        Comparator<Integer> cmp = Comparator.naturalOrder();
+        assertTo(left.mergeJoin(right, cmp).map((k, p) -> p.first + p.second), "L2R2,L2R2,L4R4,L4R4");
+        assertTo(left.mergeJoin(right, cmp).map((k, p) -> k).take(1), "2");
+        assertTo(left.cogroup(right, cmp).map((k, p) -> k + ":" + p.first.size() + p.second.size()), "1:10,2:21,3:01,4:12,5:10,6:01");
+
+        Seq2<Integer, String> unsorted = Seq.of(2, 1).pairWith(i -> "U" + i);
+        try {
+            left.mergeJoin(unsorted, cmp, true).consume((k, p) -> {});
+            assert false;
+        } catch (IllegalStateException ignored) {}
+    }
+
     @Test
     public void testParser() {
         String s = "1:2,2:3,3:4,4:5,5:6";
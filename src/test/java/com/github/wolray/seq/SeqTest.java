@@ -2,13 +2,24 @@ package com.github.wolray.seq;
 
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author wolray
@@ -96,6 +107,120 @@ public class SeqTest {
         assert seq2.groupBy(i -> i / 4, Reducer.sumInt()).toString().equals("{0=6, 1=22, 2=21, 3=12}");
     }
 
+    @Test
+    public void testSample() {
+        Random random = new Random(7);
+        SeqList<Integer> sample = Seq.range(10000).reduce(Reducer.sample(10, random));
+        assert sample.size() == 10 && sample.toSet().size() == 10;
+        assert Seq.range(5).reduce(Reducer.sample(10, random)).sorted().join(",").equals("0,1,2,3,4");
+
+        Reducer.Mergeable<Integer, SeqList<Integer>> reducer = Reducer.sample(10, random);
+        Reducer.MergeableWorker<Integer, SeqList<Integer>> w1 = reducer.get();
+        Reducer.MergeableWorker<Integer, SeqList<Integer>> w2 = reducer.get();
+        Seq.range(0, 500).consume(w1::accept);
+        Seq.range(500, 1000).consume(w2::accept);
+        w1.merge(w2);
+        assert w1.result().size() == 10 && w1.result().matchAll(i -> i >= 0 && i < 1000);
+        SeqList<Integer> merged = w1.result().sorted();
+        Seq.range(1000, 100000).consume(w2::accept);
+        assert w1.result().sorted().equals(merged);
+
+        int[] hits = new int[100];
+        for (int trial = 0; trial < 4000; trial++) {
+            Seq.range(100).reduce(Reducer.sample(5, random)).consume(i -> hits[i]++);
+        }
+        for (int h : hits) {
+            assert h > 140 && h < 260 : h;
+        }
+        int[] heavy = {0};
+        for (int trial = 0; trial < 4000; trial++) {
+            Sampler.Weighted<Integer> w = new Sampler.Weighted<>(1, i -> i % 2 == 0 ? 1 : 3, random);
+            Seq.range(100).consume(w::accept);
+            heavy[0] += w.result().count(i -> i % 2 == 1);
+        }
+        assert heavy[0] > 2850 && heavy[0] < 3150 : heavy[0];
+
+        SeqList<Integer> weighted = Seq.range(1000).reduce(Reducer.sample(5, i -> i < 10 ? 0 : 1, random));
+        assert weighted.size() == 5 && weighted.matchAll(i -> i >= 10);
+
+        SeqMap<Integer, SeqList<Integer>> strata = Seq.range(1000).reduce(Reducer.stratifiedSample(i -> i % 3, 4, random));
+        assert strata.size() == 3 && strata.toValues().matchAll(ls -> ls.size() == 4);
+        strata.consume((k, ls) -> {
+            assert ls.matchAll(i -> i % 3 == k);
+        });
+    }
+
+    @Test
+    public void testMergeSorted() {
+        Comparator<Integer> cmp = Comparator.naturalOrder();
+        Seq<Integer> s1 = Seq.of(1, 4, 7, 10);
+        Seq<Integer> s2 = Seq.direct(2, 4, 8);
+        Seq<Integer> s3 = Seq.range(4).map(i -> i * 3);
+        assertTo(Seq.mergeSorted(cmp, s1, s2, s3), "0,1,2,3,4,4,6,7,8,9,10");
+        assertTo(Seq.mergeSorted(cmp, s1, s2, s3).take(4), "0,1,2,3");
+        assertTo(Seq.mergeSortedDistinct(cmp, s1, s2, s3), "0,1,2,3,4,6,7,8,9,10");
+        assertTo(Seq.mergeSorted(cmp, Reducer.count(), s1, s2, s3), "1,1,1,1,2,1,1,1,1,1");
+        assertTo(Seq.mergeSorted(cmp, s1), "1,4,7,10");
+        assertTo(Seq.mergeSorted(cmp), "");
+        Seq<Integer> naturals = c -> {
+            for (int i = 0; ; i++) {
+                if (c.test(i)) {
+                    return true;
+                }
+            }
+        };
+        for (int i = 0; i < 20; i++) {
+            assert Seq.mergeSortedDistinct(cmp, naturals, naturals.map(n -> n * 2)).until(n -> n == 2);
+        }
+        for (int i = 0; i < 20; i++) {
+            assertTo(Seq.mergeSortedDistinct(cmp, naturals, naturals.map(n -> n * 2)).take(3), "0,1,2");
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (Seq.of(Thread.getAllStackTraces().keySet()).matchAny(t -> t.getName().equals("seq-puller"))) {
+            assert System.currentTimeMillis() < deadline;
+            System.gc();
+            Async.sleep(50);
+        }
+    }
+
+    @Test
+    public void testPrimitiveMaps() {
+        Seq<Integer> seq = Seq.of(0, 2, 4, 1, 6, 3, 5, 7, 10, 11, 12, -5);
+        assert seq.groupByInt(i -> i / 4, Reducer.sumInt()).toString().equals("{0=6, 1=22, 2=21, 3=12, -1=-5}");
+        assert seq.groupByLong(i -> i / 4, Reducer.count()).toString().equals("{0=4, 1=4, 2=2, 3=1, -1=1}");
+        IntIntMap counts = Seq.range(10000).reduce(Reducer.countByInt(i -> i % 1000));
+        assert counts.size() == 1000 && counts.get(999) == 10 && counts.get(1000) == 0;
+        LongLongMap longCounts = Seq.range(10000).reduce(Reducer.countByLong(i -> i * 1000000007L));
+        assert longCounts.size() == 10000 && longCounts.get(9999 * 1000000007L) == 1;
+        IntObjSeqMap<Integer> map = Seq.range(100).reduce(Reducer.toMapByInt(i -> -i));
+        assert map.get(-99) == 99 && map.get(1) == null && map.keyAt(3) == -3;
+        assert map.mapValues(i -> i * 2).toValues().take(3).join(",").equals("0,2,4");
+        IntObjSeqMap<String> emptyInt = new IntObjSeqMap<Integer>().mapValues(String::valueOf);
+        emptyInt.put(1, "a");
+        assert emptyInt.get(1).equals("a") && emptyInt.size() == 1;
+        LongObjSeqMap<String> emptyLong = new LongObjSeqMap<Integer>(0).mapValues(String::valueOf);
+        for (long i = 0; i < 100; i++) {
+            emptyLong.put(i, "a");
+        }
+        assert emptyLong.get(99L).equals("a") && emptyLong.size() == 100;
+        Reducer.Worker<Integer, IntObjSeqMap<Integer>> grouping = Reducer.groupByInt((Integer i) -> i % 2, Reducer.count()).get();
+        seq.consume(grouping::accept);
+        assert grouping.result().get(0) == 6;
+        grouping.accept(2);
+        assert grouping.result().get(0) == 7 && grouping.result().get(1) == 5;
+    }
+
+    @Test
+    public void testGroupByParallel() {
+        Async async = Async.common();
+        ItrSeq<Integer> seq = Seq.range(100000);
+        SeqMap<Integer, Integer> expected = seq.groupBy(i -> i % 1000, Reducer.count());
+        SeqMap<Integer, Integer> unordered = seq.groupByParallel(i -> i % 1000, Reducer.count(), async);
+        assert unordered.equals(expected);
+        SeqMap<Integer, Integer> ordered = seq.reduce(Reducer.groupByParallel(i -> i % 1000, Reducer.count(), async, 3, true));
+        assert ordered.toKeys().join(",").equals(expected.toKeys().join(","));
+    }
+
     @Test
     public void testYield() {
         Seq<Integer> fib1 = Seq.gen(1, 1, Integer::sum).take(10);
@@ -225,6 +350,30 @@ public class SeqTest {
         assertTo(splitter3.split("1a2b3c"), "1,2,3,");
         assertTo(splitter3.split("1a2b3c").take(2), "1,2");
         assertTo(splitter3.split("1a2b3c").drop(2), "3,");
+
+        assertTo(splitter2.split("..a..b"), ",a,b");
+        assertTo(splitter1.splitSlices(new StringBuilder("a#bb#")).map(CharSlice::toString), "a,bb,");
+        assert splitter1.splitSlices(ByteSlice.of("x#yy#zzz")).count(f -> f.length() == 2) == 1;
+        assert splitter2.splitSlices("a..b..c").map(CharSlice::copy).toList().get(1).contentEquals("b");
+        assert splitter3.splitSlices("1a22b3").map(CharSlice::hashCode).toList().equals(Seq.of("1", "22", "3").map(String::hashCode).toList());
+    }
+
+    @Test
+    public void testSeqMap() {
+        SeqMap<Integer, Integer> map = Seq.range(100).toMapWith(i -> i * i);
+        Seq.range(100).filter(i -> i % 3 == 0).consume(map::remove);
+        map.put(3, -1);
+        map.keySet().removeIf(i -> i % 5 == 0);
+        assert map.size() == 54 && map.get(3) == -1 && map.get(6) == null && !map.containsKey(10);
+        assert map.toKeys().take(4).join(",").equals("1,2,4,7") && map.toKeys().last() == 3;
+        SeqMap<Integer, String> strings = map.mapValuesInPlace(i -> "#" + i);
+        assert strings == (Object)map && strings.get(7).equals("#49");
+        assert strings.mapValues(s -> s.length()).get(98) == 5;
+        assert (Object)map instanceof LinkedHashMap;
+        CompactMap<Integer, String> compact = strings.toCompactMap();
+        compact.keySet().removeIf(i -> i < 50);
+        assert compact.equals(strings.filterByKey(i -> i >= 50).toMap()) && compact.keySet().iterator().next() == 52;
+        assert compact.mapValues((k, v) -> v.length()).get(98) == 5;
     }
 
     @Test
@@ -246,6 +395,54 @@ public class SeqTest {
         System.out.println(seq.print(Object::toString));
     }
 
+    @Test
+    public void testSeqExpandOrder() {
+        SeqExpand<Integer> expand = n -> n < 8 ? Seq.of(n * 2, n * 2 + 1) : Seq.empty();
+        assertTo(expand.toSeq(1), "1,2,4,8,9,5,10,11,3,6,12,13,7,14,15");
+        assertTo(expand.toSeq(1, SeqExpand.Order.BFS), "1,2,3,4,5,6,7,8,9,10,11,12,13,14,15");
+        assertTo(expand.toSeq(1, 1), "1,2,3");
+        assertTo(expand.toSeq(1, 2, SeqExpand.Order.BFS), "1,2,3,4,5,6,7");
+        assertTo(expand.toSeq(1, SeqExpand.Order.BFS).take(5), "1,2,3,4,5");
+        SeqExpand<Integer> endless = n -> Seq.gen(n * 10, i -> i + 1);
+        assertTo(endless.toSeq(1).take(4), "1,10,100,1000");
+        assertTo(endless.toSeq(1, SeqExpand.Order.BFS).take(4), "1,10,11,12");
+        assert Seq.ofTree(1, endless).take(4).last() == 1000;
+        SeqExpand<Integer> chain = n -> n < 1000000 ? Seq.unit(n + 1) : Seq.empty();
+        assert chain.toSeq(0).count() == 1000001;
+        assert chain.toSeq(0, SeqExpand.Order.BFS).last() == 1000000;
+        assert chain.toDAG(0).size() == 1000001;
+        SeqExpand<Integer> diamond = n -> n == 0 ? Seq.of(1, 2) : n < 3 ? Seq.unit(3) : Seq.empty();
+        assert diamond.toDAG(0).get(3).isEmpty() && diamond.toDAG(0).get(1).equals(Arrays.asList(3));
+        assert diamond.toDAG(0).get(2).equals(Arrays.asList(3));
+    }
+
+    @Test
+    public void testParallelScan() {
+        SeqExpand<Integer> expand = n -> n < 100000 ? Seq.of(n * 2, n * 2 + 1) : Seq.empty();
+        SeqExpand<Integer> comb = n -> n > 0 && n < 50000 ? Seq.of(-n, n + 1) : Seq.empty();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                for (int threshold : new int[]{1, 16, 1 << 20}) {
+                    ParallelScan<Integer> scan = expand.parallelScan(round % 2 == 0 ? pool : ForkJoinPool.commonPool(), threshold);
+                    SeqList<Integer> sample = scan.reduce(1, Reducer.sample(1000, new Random(1)));
+                    assert sample.size() == 1000 && sample.toSet().size() == 1000;
+                    double sum = scan.reduce(1, Reducer.sum(n -> n), Double::sum);
+                    assert sum == 199999L * 200000 / 2;
+                    assert scan.until(1, n -> n == 123456);
+                    assert !scan.until(1, n -> n > 200000);
+                    double combSum = comb.parallelScan(pool, threshold).reduce(1, Reducer.sum(n -> Math.abs(n)), Double::sum);
+                    assert combSum == 50000L * 50001 / 2 + 49999L * 50000 / 2;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        AtomicInteger visited = new AtomicInteger();
+        SeqExpand<Integer> infinite = n -> Seq.of(n + 1, n + 2);
+        assert infinite.parallelScan(ForkJoinPool.commonPool(), 8).until(0, n -> visited.incrementAndGet() > 10000);
+    }
+
     static void assertTo(Seq<?> seq, String s) {
         assertTo(seq, ",", s);
     }
@@ -264,4 +461,71 @@ public class SeqTest {
             this.value = value;
         }
     }
+
+    @Test
+    public void testWalkFiles() throws IOException {
+        Path root = Files.createTempDirectory("seq");
+        try {
+            for (int i = 0; i < 4; i++) {
+                Path dir = Files.createDirectories(root.resolve("d" + i).resolve("e" + i));
+                for (int j = 0; j < 5; j++) {
+                    Files.write(dir.resolve("f" + j), new byte[j]);
+                    Files.write(dir.getParent().resolve("g" + j), new byte[j]);
+                }
+            }
+            for (int i = 0; i < FileWalker.AHEAD * 2; i++) {
+                Files.createDirectories(root.resolve("w").resolve("v" + i).resolve("u"));
+            }
+            List<Path> expected;
+            try (Stream<Path> stream = Files.walk(root)) {
+                expected = stream.skip(1).collect(Collectors.toList());
+            }
+            FileWalker walker = Seq.walkFiles(root, Async.common(), Integer.MAX_VALUE, (p, a) -> true);
+            assert walker.map(p -> p.first).toList().equals(expected);
+            assert walker.unordered().map(p -> p.first).toSet().equals(new HashSet<>(expected));
+            assert walker.filter(p -> p.second.isRegularFile()).count() == 40;
+            assert walker.filter(p -> p.second.isDirectory()).count() == 9 + FileWalker.AHEAD * 4;
+            assert walker.take(3).map(p -> p.first).toList().equals(expected.subList(0, 3));
+            assert Seq.walkFiles(root, Async.common(), 1, (p, a) -> true).count() == 5;
+            FileWalker pruned = Seq.walkFiles(root, Async.common(), 5, (p, a) -> !p.getFileName().toString().equals("d1"));
+            assert pruned.unordered().count() == expected.size() - 12;
+        } finally {
+            try (Stream<Path> stream = Files.walk(root)) {
+                stream.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void testMultiMatcher() {
+        Random random = new Random(8);
+        String[] words = {"ab", "abc", "bca", "c", "caab", "中b"};
+        MultiMatcher matcher = MultiMatcher.of(words);
+        for (int k = 0; k < 200; k++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = random.nextInt(30); i > 0; i--) {
+                sb.append("abc中".charAt(random.nextInt(4)));
+            }
+            String text = sb.toString();
+            SeqSet<MultiMatcher.Match> expected = new SeqSet<>();
+            for (int w = 0; w < words.length; w++) {
+                for (int i = text.indexOf(words[w]); i >= 0; i = text.indexOf(words[w], i + 1)) {
+                    expected.add(new MultiMatcher.Match(w, i, i + words[w].length()));
+                }
+            }
+            assert Seq.matchAll(text, matcher).toSet().equals(expected);
+            assert matcher.containsAny(text) == !expected.isEmpty();
+            assert matcher.containsAny(ByteSlice.of(text)) == !expected.isEmpty();
+            assert matcher.matchAll(ByteSlice.of(text)).count() == expected.size();
+        }
+        String[] globs = {"err*timeout", "user=?d", "fail"};
+        MultiMatcher globMatcher = MultiMatcher.ofGlobs(globs);
+        List<String> lines = Arrays.asList("x error: read timeout", "user=7d ok", "user=77d", "failed", "timeout err", "ok");
+        assert Seq.of(lines).filterContainsAny(s -> s, globMatcher).toList().equals(Arrays.asList(lines.get(0), lines.get(1), lines.get(3)));
+        assert Seq.of(lines).map(ByteSlice::of).filterContainsAny(b -> b, globMatcher).count() == 3;
+        assert Seq.of(lines).filterContainsAny(s -> s.toUpperCase(), MultiMatcher.of("OK")).count() == 2;
+        assert Seq.matchAll("x error: read timeout", globMatcher).toList().equals(Arrays.asList(new MultiMatcher.Match(0, 2, 21)));
+        assert Seq.matchAll("user=中d", globMatcher).count() == 1;
+        assert MultiMatcher.ofGlobs("user=?d").matchAll(ByteSlice.of("user=中d")).count() == 0;
+    }
 }